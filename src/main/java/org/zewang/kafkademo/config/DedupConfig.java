@@ -0,0 +1,85 @@
+package org.zewang.kafkademo.config;
+
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.file.Path;
+import java.util.Locale;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.zewang.kafkademo.service.RedisDedupService;
+import org.zewang.kafkademo.service.dedup.BloomDedupService;
+import org.zewang.kafkademo.service.dedup.InMemoryDedupService;
+import org.zewang.kafkademo.service.dedup.MappedFileDedupService;
+import org.zewang.kafkademo.service.dedup.MessageDeduplicator;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 消息去重后端配置，按 kafka.dedup.backend 选择 Redis 键、时间分桶布隆过滤器、
+ *               纯内存表或内存映射文件
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/18 22:30
+ */
+
+@Configuration
+public class DedupConfig {
+
+    @Value("${kafka.dedup.backend:redis}")
+    private String backend;
+
+    @Value("${kafka.dedup.ttl-hours:24}")
+    private long ttlHours;
+
+    @Value("${kafka.dedup.mmap.path:./data/dedup.idx}")
+    private String mmapPath;
+
+    @Value("${kafka.dedup.mmap.max-entries:5000000}")
+    private long mmapMaxEntries;
+
+    @Value("${kafka.dedup.bloom.bucket-minutes:60}")
+    private long bloomBucketMinutes;
+
+    @Value("${kafka.dedup.bloom.buckets:24}")
+    private int bloomBuckets;
+
+    @Value("${kafka.dedup.bloom.expected-insertions-per-bucket:1000000}")
+    private long bloomExpectedInsertions;
+
+    @Value("${kafka.dedup.bloom.fpp:0.001}")
+    private double bloomFpp;
+
+    @Value("${kafka.dedup.bloom.single-owner:false}")
+    private boolean bloomSingleOwner;
+
+    // 消费者按接口注入，拿到的是这里选中的实现；mmap 实现在容器关闭时由推断的 close() 刷盘
+    // RedisDedupService 只在 backend=redis 时注册，其他后端下容器中没有这个 bean
+    // bloom 后端创建时就从 dedup_processed_ids 预热，需要等 Hibernate 建好表
+    @Bean
+    @Primary
+    @DependsOn("entityManagerFactory")
+    public MessageDeduplicator messageDeduplicator(ObjectProvider<RedisDedupService> redisDedupService,
+        JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        return switch (backend.trim().toLowerCase(Locale.ROOT)) {
+            case "redis" -> redisDedupService.getObject();
+            case "bloom" -> {
+                if (!bloomSingleOwner) {
+                    // 过滤器和抢占集合只在本进程内，再均衡后重投到其他实例的消息会被再次处理
+                    throw new IllegalStateException("bloom 去重后端只在单实例消费时正确，"
+                        + "多实例部署请使用 redis；确认只有一个消费者实例时设置 kafka.dedup.bloom.single-owner=true");
+                }
+                BloomDedupService bloomDedupService = new BloomDedupService(jdbcTemplate, meterRegistry,
+                    bloomBucketMinutes, bloomBuckets, bloomExpectedInsertions, bloomFpp);
+                bloomDedupService.warmUp();
+                yield bloomDedupService;
+            }
+            case "memory" -> new InMemoryDedupService(ttlHours);
+            case "mmap" -> new MappedFileDedupService(Path.of(mmapPath), mmapMaxEntries, ttlHours);
+            default -> throw new IllegalArgumentException("不支持的去重后端: " + backend);
+        };
+    }
+}
@@ -3,14 +3,17 @@ package org.zewang.kafkademo.config;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import org.apache.kafka.clients.admin.AdminClientConfig;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
 import org.apache.kafka.common.serialization.Serdes;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.IsolationLevel;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.apache.kafka.streams.KafkaStreams;
 import org.apache.kafka.streams.StreamsBuilder;
@@ -29,10 +32,24 @@ import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
 import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.transaction.KafkaTransactionManager;
 import org.springframework.util.backoff.FixedBackOff;
 import org.zewang.kafkademo.config.serialize.CustomJsonDeserializer;
 import org.zewang.kafkademo.config.serialize.CustomJsonSerializer;
+import org.zewang.kafkademo.config.serialize.TestMessageBinaryDeserializer;
+import org.zewang.kafkademo.config.serialize.TestMessageBinarySerializer;
+import org.zewang.kafkademo.config.serialize.TestMessageView;
+import org.zewang.kafkademo.config.serialize.TestMessageViewDeserializer;
+import org.zewang.kafkademo.config.serialize.ZstdDictionaries;
+import org.zewang.kafkademo.config.serialize.ZstdDictionaryDeserializer;
+import org.zewang.kafkademo.config.serialize.ZstdDictionarySerializer;
+import org.zewang.kafkademo.consumer.ExactlyOnceTestMessageConsumer;
+import org.zewang.kafkademo.consumer.support.HeaderDedupFilterStrategy;
 import org.zewang.kafkademo.entity.TestMessage;
+import org.zewang.kafkademo.service.ParallelMessageProcessor;
+import org.zewang.kafkademo.service.dedup.DedupNearCache;
+import org.zewang.kafkademo.service.dedup.OffsetWatermarkDeduplicator;
+import org.zewang.kafkademo.service.log.LogWriteBehindBuffer;
 import org.zewang.kafkademo.streams.ClickStreamProcessor;
 
 /**
@@ -49,6 +66,37 @@ public class KafkaConfig {
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
+    @Value("${kafka.log-consumer.max-poll-records:500}")
+    private int maxPollRecords;
+
+    // web-logs 监听容器的消费者线程数，超过分区数的部分会空闲
+    @Value("${kafka.log-consumer.concurrency:1}")
+    private int logConsumerConcurrency;
+
+    @Value("${kafka.log-consumer.write-behind.idle-commit-ms:5000}")
+    private long writeBehindIdleCommitMs;
+
+    @Value("${kafka.parallel-consumer.idle-commit-ms:5000}")
+    private long parallelIdleCommitMs;
+
+    // 按 messageId 头在监听器之前去重
+    @Value("${kafka.dedup.header-filter.enabled:true}")
+    private boolean headerDedupFilterEnabled;
+
+    // 逗号分隔的 zstd 字典文件，为空时 zstdDictKafkaTemplate 不压缩
+    @Value("${kafka.zstd-dictionary.paths:}")
+    private String zstdDictionaryPaths;
+
+    @Value("${kafka.zstd-dictionary.level:3}")
+    private int zstdDictionaryLevel;
+
+    // custom 生产者/消费者的 TestMessage 编码：json 或 binary，两端需要一致
+    @Value("${kafka.custom-serializer.format:json}")
+    private String customSerializerFormat;
+
+    @Value("${kafka.custom-serializer.blackbird:false}")
+    private boolean customSerializerBlackbird;
+
     // 配置 KafkaAdmin
     @Bean
     public KafkaAdmin kafkaAdmin() {
@@ -74,6 +122,12 @@ public class KafkaConfig {
         return new NewTopic("test-messages", 3, (short) 1);
     }
 
+    // 创建 Topic - test-messages 的处理结果，由事务性消费者与 offset 一起原子提交
+    @Bean
+    public NewTopic testMessagesProcessedTopic() {
+        return new NewTopic(ExactlyOnceTestMessageConsumer.OUTPUT_TOPIC, 3, (short) 1);
+    }
+
     // 配置消费者工厂
     public ConsumerFactory<String, String> consumerFactory() {
         Map<String, Object> props = new HashMap<>();
@@ -93,7 +147,24 @@ public class KafkaConfig {
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, "custom-serializer-group");
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, CustomJsonDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, binaryCustomFormat()
+            ? TestMessageBinaryDeserializer.class : CustomJsonDeserializer.class);
+        props.put("serializedClass", TestMessage.class.getName());
+        props.put("useBlackbird", customSerializerBlackbird);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+
+        return new DefaultKafkaConsumerFactory<>(props);
+    }
+
+    // 延迟解码的消费者工厂：值为 TestMessageView，JSON 和二进制格式都能读取
+    @Bean
+    public ConsumerFactory<String, TestMessageView> lazyCustomConsumerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, "custom-serializer-lazy-group");
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, TestMessageViewDeserializer.class);
         props.put("serializedClass", TestMessage.class.getName());
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
         props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
@@ -119,13 +190,195 @@ public class KafkaConfig {
         return new DefaultKafkaConsumerFactory<>(props);
     }
 
+    // 读取 zstdDictKafkaTemplate 发送的消息：按消息头中的字典 ID 解压，没有该消息头的消息原样读取
+    @Bean
+    public ConsumerFactory<String, String> zstdDictConsumerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, "zstd-dict-consumer-group");
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ZstdDictionaryDeserializer.class);
+        props.put(ZstdDictionaries.DELEGATE_CONFIG, StringDeserializer.class);
+        props.put(ZstdDictionaries.DICTIONARIES_CONFIG, zstdDictionaryPaths);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+
+        return new DefaultKafkaConsumerFactory<>(props);
+    }
+
     // 创建 KafkaListenerContainerFactory
+    // 分区被回收时清除去重近端缓存中属于这些分区的记录
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> kafkaListenerContainerFactory(
+        DedupNearCache dedupNearCache) {
+        return recordListenerContainerFactory(dedupNearCache);
+    }
+
+    // 创建 KafkaListenerContainerFactory - 批量监听，整批处理完成后手动提交 offset
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> batchKafkaListenerContainerFactory(
+        DedupNearCache dedupNearCache) {
+        return batchListenerContainerFactory(dedupNearCache);
+    }
+
+    // 创建 KafkaListenerContainerFactory - test-messages 主主题逐条监听，带 messageId 头的重复记录在监听器之前丢弃并提交
+    // 头部预过滤抢占的标记只有 TestMessageConsumer 会确认或释放，其他监听器、重试主题和死信主题不能使用这个工厂
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> testMessageKafkaListenerContainerFactory(
+        DedupNearCache dedupNearCache, HeaderDedupFilterStrategy headerDedupFilterStrategy) {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = recordListenerContainerFactory(dedupNearCache);
+        applyHeaderDedupFilter(factory, headerDedupFilterStrategy);
+        return factory;
+    }
+
+    // 创建 KafkaListenerContainerFactory - test-messages 批量监听，整批按 messageId 头预过滤
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, String> kafkaListenerContainerFactory() {
+    public ConcurrentKafkaListenerContainerFactory<String, String> testMessageBatchKafkaListenerContainerFactory(
+        DedupNearCache dedupNearCache, HeaderDedupFilterStrategy headerDedupFilterStrategy) {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = batchListenerContainerFactory(dedupNearCache);
+        applyHeaderDedupFilter(factory, headerDedupFilterStrategy);
+        return factory;
+    }
+
+    // 各工厂独立创建，不能调用 @Bean 方法复用，否则拿到的是同一个单例
+    private ConcurrentKafkaListenerContainerFactory<String, String> recordListenerContainerFactory(
+        DedupNearCache dedupNearCache) {
         ConcurrentKafkaListenerContainerFactory<String, String> factory =
             new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        factory.getContainerProperties().setConsumerRebalanceListener(dedupNearCache);
+        return factory;
+    }
+
+    private ConcurrentKafkaListenerContainerFactory<String, String> batchListenerContainerFactory(
+        DedupNearCache dedupNearCache) {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory =
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setConsumerRebalanceListener(dedupNearCache);
+        factory.setCommonErrorHandler(errorHandler());
+        return factory;
+    }
+
+    // 被丢弃的记录也需要提交 offset，否则手动提交模式下会在重启后再次投递
+    private void applyHeaderDedupFilter(ConcurrentKafkaListenerContainerFactory<String, String> factory,
+        HeaderDedupFilterStrategy headerDedupFilterStrategy) {
+        if (headerDedupFilterEnabled) {
+            factory.setRecordFilterStrategy(headerDedupFilterStrategy);
+            factory.setAckDiscarded(true);
+        }
+    }
+
+    // 创建 KafkaListenerContainerFactory - test-messages 分区内并行处理
+    // 监听器在 poll 线程上提交连续处理完成的 offset，容器本身不提交；分区回收前由 ParallelMessageProcessor 等待在途记录
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> parallelKafkaListenerContainerFactory(
+        ParallelMessageProcessor parallelMessageProcessor) {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory =
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setConsumerRebalanceListener(parallelMessageProcessor);
+        // 没有新消息时定期发布空闲事件，用来提交最后几条记录的 offset
+        factory.getContainerProperties().setIdleEventInterval(parallelIdleCommitMs);
+        return factory;
+    }
+
+    // 创建 KafkaListenerContainerFactory - offset 水位去重，分区分配时从已提交的 offset 初始化水位
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> watermarkKafkaListenerContainerFactory(
+        OffsetWatermarkDeduplicator offsetWatermarkDeduplicator) {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory =
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        factory.getContainerProperties().setConsumerRebalanceListener(offsetWatermarkDeduplicator);
+        return factory;
+    }
+
+    // 事务性消费者工厂：只读取已提交事务中的消息
+    public ConsumerFactory<String, String> readCommittedConsumerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, "test-message-eos-group");
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, IsolationLevel.READ_COMMITTED.toString());
+        return new DefaultKafkaConsumerFactory<>(props);
+    }
+
+    // 创建 KafkaListenerContainerFactory - exactly-once：每条记录在一个 Kafka 事务中处理，
+    // 输出消息与消费 offset（sendOffsetsToTransaction）一起提交，失败时整体回滚并重新投递
+    // 事务管理器只交给容器，不注册为 Bean，避免替换掉 JPA 的默认事务管理器
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> eosKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory =
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(readCommittedConsumerFactory());
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.RECORD);
+        factory.getContainerProperties()
+            .setKafkaAwareTransactionManager(new KafkaTransactionManager<>(transactionalProducerFactory()));
+        return factory;
+    }
+
+    // web-logs 日志消费者工厂：value 保持原始字节，由监听器流式解析 Filebeat JSON
+    public ConsumerFactory<String, byte[]> logConsumerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, "test-message-group");
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords); // 每批最多记录数
+        return new DefaultKafkaConsumerFactory<>(props);
+    }
+
+    // 创建 KafkaListenerContainerFactory - web-logs 逐条监听
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, byte[]> logKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, byte[]> factory =
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(logConsumerFactory());
+        factory.setConcurrency(logConsumerConcurrency);
+        // 逐条监听方法不接收 Acknowledgment，由容器在每条记录处理完成后提交
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.RECORD);
+        return factory;
+    }
+
+    // 创建 KafkaListenerContainerFactory - web-logs 批量监听，整批持久化后再手动提交 offset
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, byte[]> logBatchKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, byte[]> factory =
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(logConsumerFactory());
+        factory.setConcurrency(logConsumerConcurrency);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.setCommonErrorHandler(errorHandler());
+        return factory;
+    }
+
+    // 创建 KafkaListenerContainerFactory - web-logs write-behind 批量监听
+    // 监听器直接在 poll 线程上 commitSync，容器本身不提交；分区回收前由 LogWriteBehindBuffer 等待在途日志落库
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, byte[]> logWriteBehindKafkaListenerContainerFactory(
+        LogWriteBehindBuffer logWriteBehindBuffer) {
+        ConcurrentKafkaListenerContainerFactory<String, byte[]> factory =
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(logConsumerFactory());
+        factory.setConcurrency(logConsumerConcurrency);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setConsumerRebalanceListener(logWriteBehindBuffer);
+        // 没有新消息时定期发布空闲事件，用来提交最后几批日志的 offset
+        factory.getContainerProperties().setIdleEventInterval(writeBehindIdleCommitMs);
         return factory;
     }
 
@@ -139,14 +392,27 @@ public class KafkaConfig {
         return factory;
     }
 
+    // 创建 KafkaListenerContainerFactory - 延迟解码
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, TestMessageView> lazyCustomKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, TestMessageView> factory =
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(lazyCustomConsumerFactory());
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        factory.setCommonErrorHandler(errorHandler());
+        return factory;
+    }
+
     // 配置使用自定义序列化器的生产者工厂
     @Bean
     public ProducerFactory<String, TestMessage> customProducerFactory() {
         Map<String, Object> props = new HashMap<>();
         props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, CustomJsonSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, binaryCustomFormat()
+            ? TestMessageBinarySerializer.class : CustomJsonSerializer.class);
         props.put("serializedClass", "org.zewang.kafkademo.entity.TestMessage");
+        props.put("useBlackbird", customSerializerBlackbird);
         props.put(ProducerConfig.ACKS_CONFIG, "1");
 
         return new DefaultKafkaProducerFactory<>(props);
@@ -157,6 +423,14 @@ public class KafkaConfig {
         return new KafkaTemplate<>(customProducerFactory());
     }
 
+    private boolean binaryCustomFormat() {
+        return switch (customSerializerFormat.trim().toLowerCase(Locale.ROOT)) {
+            case "json" -> false;
+            case "binary" -> true;
+            default -> throw new IllegalArgumentException("不支持的序列化格式: " + customSerializerFormat);
+        };
+    }
+
     // 配置acks=0的KafkaTemplate
     @Bean("kafkaTemplateAcks0")
     public KafkaTemplate<String, String> kafkaTemplateAcks0() {
@@ -217,6 +491,46 @@ public class KafkaConfig {
         return new KafkaTemplate<>(producerFactory);
     }
 
+    // 逐条 zstd 字典压缩的 template：批次再压缩几乎没有收益，批次压缩关闭
+    @Bean("zstdDictKafkaTemplate")
+    public KafkaTemplate<String, String> zstdDictKafkaTemplate() {
+        Map<String, Object> configs = new HashMap<>();
+        configs.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configs.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configs.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ZstdDictionarySerializer.class);
+        configs.put(ZstdDictionaries.DELEGATE_CONFIG, StringSerializer.class);
+        configs.put(ZstdDictionaries.DICTIONARIES_CONFIG, zstdDictionaryPaths);
+        configs.put(ZstdDictionaries.LEVEL_CONFIG, zstdDictionaryLevel);
+        configs.put(ProducerConfig.ACKS_CONFIG, "1");
+        configs.put(ProducerConfig.BATCH_SIZE_CONFIG, 16384);
+        configs.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+        configs.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "none");
+
+        ProducerFactory<String, String> producerFactory = new DefaultKafkaProducerFactory<>(configs);
+        return new KafkaTemplate<>(producerFactory);
+    }
+
+    // 事务性生产者工厂：每个消费者线程对应一个 transactional.id，幂等与 acks=all 由事务隐含要求
+    @Bean
+    public ProducerFactory<String, String> transactionalProducerFactory() {
+        Map<String, Object> configs = new HashMap<>();
+        configs.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configs.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configs.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configs.put(ProducerConfig.ACKS_CONFIG, "all");
+        configs.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+
+        DefaultKafkaProducerFactory<String, String> producerFactory = new DefaultKafkaProducerFactory<>(configs);
+        producerFactory.setTransactionIdPrefix("test-messages-tx-");
+        return producerFactory;
+    }
+
+    // 事务性 KafkaTemplate，在监听器容器开启的事务中发送消息
+    @Bean("transactionalKafkaTemplate")
+    public KafkaTemplate<String, String> transactionalKafkaTemplate() {
+        return new KafkaTemplate<>(transactionalProducerFactory());
+    }
+
     // 错误处理策略
     @Bean
     public DefaultErrorHandler errorHandler() {
@@ -1,34 +1,35 @@
 package org.zewang.kafkademo.config.serialize;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.databind.ObjectReader;
 import java.util.Map;
 import org.apache.kafka.common.errors.SerializationException;
 import org.apache.kafka.common.serialization.Deserializer;
 
 public class CustomJsonDeserializer<T> implements Deserializer<T>  {
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ObjectMapper objectMapper = JsonCodecSupport.newObjectMapper(false);
     private Class<T> clazz;
+    // 绑定到 clazz 的 reader，反序列化器的查找只做一次
+    private ObjectReader reader;
 
     public CustomJsonDeserializer() {
-        // 注册JavaTimeModule以支持LocalDateTime等时间类型
-        objectMapper.registerModule(new JavaTimeModule());
     }
 
     public CustomJsonDeserializer(Class<T> clazz) {
         this.clazz = clazz;
-        // 注册JavaTimeModule以支持LocalDateTime等时间类型
-        objectMapper.registerModule(new JavaTimeModule());
+        this.reader = objectMapper.readerFor(clazz);
     }
 
     @Override
     public void configure(Map<String, ?> configs, boolean isKey) {
-        if (clazz == null && configs.containsKey("serializedClass")) {
-            try {
-                clazz = (Class<T>) Class.forName((String) configs.get("serializedClass"));
-            } catch (ClassNotFoundException e) {
-                throw new SerializationException("无法加载反序列化类", e);
-            }
+        if (JsonCodecSupport.useBlackbird(configs)) {
+            objectMapper = JsonCodecSupport.newObjectMapper(true);
+        }
+        if (clazz == null) {
+            clazz = JsonCodecSupport.serializedClass(configs, "无法加载反序列化类");
+        }
+        if (clazz != null) {
+            reader = objectMapper.readerFor(clazz);
         }
     }
 
@@ -37,10 +38,14 @@ public class CustomJsonDeserializer<T> implements Deserializer<T>  {
         if (data == null) {
             return null;
         }
+        if (reader == null) {
+            throw new SerializationException("未配置反序列化类 serializedClass");
+        }
         try {
-            return objectMapper.readValue(data, clazz);
+            return reader.readValue(data);
         } catch (Exception e) {
-            throw new SerializationException("反序列化对象时出错: " + new String(data), e);
+            // 只在出错时截取一段消息内容，正常路径不额外分配
+            throw new SerializationException("反序列化对象时出错: " + JsonCodecSupport.preview(data), e);
         }
     }
 
@@ -1,9 +1,10 @@
 package org.zewang.kafkademo.config.serialize;
 
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.IOException;
 import java.util.Map;
 import lombok.RequiredArgsConstructor;
 import org.apache.kafka.common.errors.SerializationException;
@@ -12,29 +13,30 @@ import org.apache.kafka.common.serialization.Serializer;
 /**
  * @author "Zewang"
  * @version 1.0
- * @description: TODO (这里用一句话描述这个类的作用)
+ * @description: 基于 Jackson 的 JSON 序列化器，按配置的 serializedClass 预先绑定 ObjectWriter，
+ *               输出缓冲区按线程复用
  * @email "Zewang0217@outlook.com"
  * @date 2025/11/01 19:22
  */
 
 @RequiredArgsConstructor
 public class CustomJsonSerializer<T> implements Serializer<T> {
-    private final ObjectMapper objectMapper = new ObjectMapper(); // Jackson对象映射器
+    private ObjectMapper objectMapper = JsonCodecSupport.newObjectMapper(false); // Jackson对象映射器
     private Class<T> clazz; // 泛型类
+    // 绑定到 clazz 的 writer，序列化器的查找只在 configure 时做一次
+    private ObjectWriter writer = objectMapper.writer();
 
     @Override
     public void configure(Map<String, ?> configs, boolean isKey) {
-        // 使用JavaTimeModule以支持LocalDateTime等时间类型
-        objectMapper.registerModule(new JavaTimeModule());
+        if (JsonCodecSupport.useBlackbird(configs)) {
+            objectMapper = JsonCodecSupport.newObjectMapper(true);
+        }
 
         // 可以从配置中获取类信息
-        if (clazz == null && configs.containsKey("serializedClass")) {
-            try {
-                clazz = (Class<T>) Class.forName((String) configs.get("serializedClass"));
-            } catch (ClassNotFoundException e) {
-                throw new SerializationException("无法加载序列化类", e);
-            }
+        if (clazz == null) {
+            clazz = JsonCodecSupport.serializedClass(configs, "无法加载序列化类");
         }
+        writer = clazz != null ? objectMapper.writerFor(clazz) : objectMapper.writer();
     }
 
     @Override
@@ -42,10 +44,14 @@ public class CustomJsonSerializer<T> implements Serializer<T> {
         if (data == null) {
             return null;
         }
+        ByteArrayBuilder buffer = JsonCodecSupport.acquireBuffer();
         try {
-            return objectMapper.writeValueAsBytes(data);
-        } catch (JsonProcessingException e) {
+            writer.writeValue(buffer, data);
+            return buffer.toByteArray();
+        } catch (IOException e) {
             throw new SerializationException("无法将数据转换为JSON", e);
+        } finally {
+            JsonCodecSupport.releaseBuffer(buffer);
         }
     }
 
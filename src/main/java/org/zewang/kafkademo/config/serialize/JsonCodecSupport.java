@@ -0,0 +1,90 @@
+package org.zewang.kafkademo.config.serialize;
+
+
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import org.apache.kafka.common.errors.SerializationException;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: CustomJsonSerializer / CustomJsonDeserializer 共用的配置解析和缓冲区
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/19 03:00
+ */
+
+final class JsonCodecSupport {
+
+    // 目标类型，与原有配置保持一致
+    static final String SERIALIZED_CLASS_CONFIG = "serializedClass";
+    // 为 true 时注册 Blackbird 模块，用生成的访问器代替反射读写属性
+    static final String USE_BLACKBIRD_CONFIG = "useBlackbird";
+
+    // 错误信息中保留的消息内容上限，避免大消息整段转成字符串写进日志
+    private static final int PREVIEW_BYTES = 256;
+    // 超过这个大小的缓冲区用完后不再保留，避免偶发的大消息长期占用每个线程的内存
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+
+    private static final ThreadLocal<ByteArrayBuilder> OUTPUT_BUFFERS =
+        ThreadLocal.withInitial(() -> new ByteArrayBuilder(512));
+
+    private JsonCodecSupport() {
+    }
+
+    static ObjectMapper newObjectMapper(boolean useBlackbird) {
+        ObjectMapper objectMapper = new ObjectMapper();
+        // 注册JavaTimeModule以支持LocalDateTime等时间类型
+        objectMapper.registerModule(new JavaTimeModule());
+        if (useBlackbird) {
+            objectMapper.registerModule(new BlackbirdModule());
+        }
+        return objectMapper;
+    }
+
+    static boolean useBlackbird(Map<String, ?> configs) {
+        Object value = configs.get(USE_BLACKBIRD_CONFIG);
+        return value != null && Boolean.parseBoolean(value.toString());
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> Class<T> serializedClass(Map<String, ?> configs, String errorMessage) {
+        Object value = configs.get(SERIALIZED_CLASS_CONFIG);
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Class<?> clazz) {
+            return (Class<T>) clazz;
+        }
+        try {
+            return (Class<T>) Class.forName(value.toString());
+        } catch (ClassNotFoundException e) {
+            throw new SerializationException(errorMessage, e);
+        }
+    }
+
+    /**
+     * 当前线程复用的输出缓冲区，调用方用完后需要 {@link #releaseBuffer(ByteArrayBuilder)}
+     */
+    static ByteArrayBuilder acquireBuffer() {
+        return OUTPUT_BUFFERS.get();
+    }
+
+    static void releaseBuffer(ByteArrayBuilder buffer) {
+        // toByteArray 已经把 size 清零，但会保留最后一个（也是最大的）内存块，按它的容量判断
+        if (buffer.getCurrentSegment().length > MAX_RETAINED_BUFFER) {
+            OUTPUT_BUFFERS.remove();
+        } else {
+            buffer.reset();
+        }
+    }
+
+    static String preview(byte[] data) {
+        int length = Math.min(data.length, PREVIEW_BYTES);
+        String preview = new String(data, 0, length, StandardCharsets.UTF_8);
+        return data.length > length ? preview + "...(共 " + data.length + " 字节)" : preview;
+    }
+}
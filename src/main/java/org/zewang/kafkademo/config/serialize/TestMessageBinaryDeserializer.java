@@ -0,0 +1,106 @@
+package org.zewang.kafkademo.config.serialize;
+
+
+import static org.zewang.kafkademo.config.serialize.TestMessageBinarySerializer.HAS_CONTENT;
+import static org.zewang.kafkademo.config.serialize.TestMessageBinarySerializer.HAS_ID;
+import static org.zewang.kafkademo.config.serialize.TestMessageBinarySerializer.HAS_MESSAGE_ID;
+import static org.zewang.kafkademo.config.serialize.TestMessageBinarySerializer.HAS_PROCESS_COUNT;
+import static org.zewang.kafkademo.config.serialize.TestMessageBinarySerializer.HAS_RECEIVED_TIME;
+import static org.zewang.kafkademo.config.serialize.TestMessageBinarySerializer.HAS_SENDER;
+import static org.zewang.kafkademo.config.serialize.TestMessageBinarySerializer.HAS_STATUS;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.zewang.kafkademo.entity.TestMessage;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: TestMessage 紧凑二进制格式的反序列化器，格式见 {@link TestMessageBinarySerializer}
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/19 02:30
+ */
+
+public class TestMessageBinaryDeserializer implements Deserializer<TestMessage> {
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        TestMessageBinarySerializer.checkSerializedClass(configs);
+    }
+
+    @Override
+    public TestMessage deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (data.length < 2 || data[0] != TestMessageBinarySerializer.VERSION) {
+            throw new SerializationException("不支持的 TestMessage 二进制格式版本: "
+                + (data.length > 0 ? data[0] : "空消息"));
+        }
+        try {
+            Reader in = new Reader(data, 1);
+            int flags = in.readByte();
+            // status / processCount 在实体中有默认值，序列化时为 null 的字段在这里也还原为 null
+            TestMessage message = new TestMessage();
+            message.setId((flags & HAS_ID) != 0 ? unzigzag(in.readVarLong()) : null);
+            message.setMessageId((flags & HAS_MESSAGE_ID) != 0 ? in.readString() : null);
+            message.setContent((flags & HAS_CONTENT) != 0 ? in.readString() : null);
+            message.setSender((flags & HAS_SENDER) != 0 ? in.readString() : null);
+            if ((flags & HAS_RECEIVED_TIME) != 0) {
+                long epochSecond = unzigzag(in.readVarLong());
+                int nano = (int) in.readVarLong();
+                message.setReceivedTime(LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC));
+            }
+            message.setStatus((flags & HAS_STATUS) != 0 ? in.readString() : null);
+            message.setProcessCount((flags & HAS_PROCESS_COUNT) != 0 ? (int) unzigzag(in.readVarLong()) : null);
+            return message;
+        } catch (RuntimeException e) {
+            throw new SerializationException("反序列化 TestMessage 时出错, length=" + data.length, e);
+        }
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Reader {
+
+        private final byte[] data;
+        private int position;
+
+        Reader(byte[] data, int position) {
+            this.data = data;
+            this.position = position;
+        }
+
+        int readByte() {
+            return data[position++] & 0xFF;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = data[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("varint 过长, position=" + position);
+        }
+
+        String readString() {
+            int length = (int) readVarLong();
+            if (length < 0 || length > data.length - position) {
+                throw new IllegalArgumentException("字符串长度越界: " + length);
+            }
+            String value = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
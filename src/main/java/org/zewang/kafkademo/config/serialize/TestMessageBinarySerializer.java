@@ -0,0 +1,135 @@
+package org.zewang.kafkademo.config.serialize;
+
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Map;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+import org.zewang.kafkademo.entity.TestMessage;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: TestMessage 的紧凑二进制序列化器，字段按固定顺序写出，不带字段名；格式：
+ *               版本(1B) | 非空字段位图(1B) | id | messageId | content | sender | receivedTime | status | processCount，
+ *               整数为 zigzag varint，字符串为 varint 长度 + UTF-8，时间为按 UTC 换算的 epoch 秒 + 纳秒
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/19 02:30
+ */
+
+public class TestMessageBinarySerializer implements Serializer<TestMessage> {
+
+    public static final byte VERSION = 1;
+
+    // 非空字段位图，值为 null 的字段不写出
+    static final int HAS_ID = 1;
+    static final int HAS_MESSAGE_ID = 1 << 1;
+    static final int HAS_CONTENT = 1 << 2;
+    static final int HAS_SENDER = 1 << 3;
+    static final int HAS_RECEIVED_TIME = 1 << 4;
+    static final int HAS_STATUS = 1 << 5;
+    static final int HAS_PROCESS_COUNT = 1 << 6;
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        checkSerializedClass(configs);
+    }
+
+    @Override
+    public byte[] serialize(String topic, TestMessage data) {
+        if (data == null) {
+            return null;
+        }
+        byte[] messageId = utf8(data.getMessageId());
+        byte[] content = utf8(data.getContent());
+        byte[] sender = utf8(data.getSender());
+        byte[] status = utf8(data.getStatus());
+
+        // 字符串以外的字段最多 10 + 10 + 5 + 5 字节，预先按上限分配，避免扩容
+        Writer out = new Writer(2 + 30 + length(messageId) + length(content) + length(sender) + length(status));
+        out.writeByte(VERSION);
+        out.writeByte(flag(data.getId() != null, HAS_ID) | flag(messageId != null, HAS_MESSAGE_ID)
+            | flag(content != null, HAS_CONTENT) | flag(sender != null, HAS_SENDER)
+            | flag(data.getReceivedTime() != null, HAS_RECEIVED_TIME) | flag(status != null, HAS_STATUS)
+            | flag(data.getProcessCount() != null, HAS_PROCESS_COUNT));
+        if (data.getId() != null) {
+            out.writeVarLong(zigzag(data.getId()));
+        }
+        out.writeBytes(messageId);
+        out.writeBytes(content);
+        out.writeBytes(sender);
+        if (data.getReceivedTime() != null) {
+            LocalDateTime time = data.getReceivedTime();
+            out.writeVarLong(zigzag(time.toEpochSecond(ZoneOffset.UTC)));
+            out.writeVarLong(time.getNano());
+        }
+        out.writeBytes(status);
+        if (data.getProcessCount() != null) {
+            out.writeVarLong(zigzag(data.getProcessCount()));
+        }
+        return out.toByteArray();
+    }
+
+    // 二进制格式只描述 TestMessage，配置了其他类型时尽早报错
+    static void checkSerializedClass(Map<String, ?> configs) {
+        Object serializedClass = configs.get("serializedClass");
+        if (serializedClass != null && !TestMessage.class.getName().equals(serializedClass.toString())) {
+            throw new SerializationException("二进制格式只支持 TestMessage: " + serializedClass);
+        }
+    }
+
+    private static byte[] utf8(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes != null ? bytes.length + 5 : 0;
+    }
+
+    private static int flag(boolean present, int bit) {
+        return present ? bit : 0;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static final class Writer {
+
+        private final byte[] buffer;
+        private int position;
+
+        Writer(int capacity) {
+            this.buffer = new byte[capacity];
+        }
+
+        void writeByte(int value) {
+            buffer[position++] = (byte) value;
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        // null 的字符串由位图表示，这里跳过
+        void writeBytes(byte[] bytes) {
+            if (bytes == null) {
+                return;
+            }
+            writeVarLong(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        byte[] toByteArray() {
+            return position == buffer.length ? buffer : Arrays.copyOf(buffer, position);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package org.zewang.kafkademo.config.serialize;
+
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import org.apache.kafka.common.errors.SerializationException;
+import org.zewang.kafkademo.entity.TestMessage;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: TestMessage 消息体的延迟解码视图，持有原始字节，字段在第一次访问时才解码并缓存；
+ *               只读 messageId 的记录（如去重判定为重复）不会解析 content 和时间字段。
+ *               同时支持 JSON 和 {@link TestMessageBinarySerializer} 的二进制格式，不是线程安全的
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/19 03:30
+ */
+
+public class TestMessageView {
+
+    // 字段序号与二进制格式中的写出顺序、非空位图的位一致
+    private static final int ID = 0;
+    private static final int MESSAGE_ID = 1;
+    private static final int CONTENT = 2;
+    private static final int SENDER = 3;
+    private static final int RECEIVED_TIME = 4;
+    private static final int STATUS = 5;
+    private static final int PROCESS_COUNT = 6;
+    private static final String[] JSON_NAMES =
+        {"id", "messageId", "content", "sender", "receivedTime", "status", "processCount"};
+
+    private static final ObjectMapper MAPPER = JsonCodecSupport.newObjectMapper(false);
+    private static final ObjectReader MESSAGE_READER = MAPPER.readerFor(TestMessage.class);
+    private static final ObjectReader TIME_READER = MAPPER.readerFor(LocalDateTime.class);
+    private static final TestMessageBinaryDeserializer BINARY_DESERIALIZER = new TestMessageBinaryDeserializer();
+
+    private final byte[] data;
+    private final boolean binary;
+    private final Object[] values = new Object[JSON_NAMES.length];
+    // 已解码字段的位图
+    private int decoded;
+
+    TestMessageView(byte[] data, boolean binary) {
+        this.data = data;
+        this.binary = binary;
+    }
+
+    public Long getId() {
+        return (Long) field(ID);
+    }
+
+    public String getMessageId() {
+        return (String) field(MESSAGE_ID);
+    }
+
+    public String getContent() {
+        return (String) field(CONTENT);
+    }
+
+    public String getSender() {
+        return (String) field(SENDER);
+    }
+
+    public LocalDateTime getReceivedTime() {
+        return (LocalDateTime) field(RECEIVED_TIME);
+    }
+
+    public String getStatus() {
+        return (String) field(STATUS);
+    }
+
+    public Integer getProcessCount() {
+        return (Integer) field(PROCESS_COUNT);
+    }
+
+    /**
+     * 一次性解码全部字段，得到完整的实体
+     */
+    public TestMessage toTestMessage() {
+        if (binary) {
+            return BINARY_DESERIALIZER.deserialize(null, data);
+        }
+        try {
+            return MESSAGE_READER.readValue(data);
+        } catch (IOException e) {
+            throw new SerializationException("反序列化对象时出错: " + JsonCodecSupport.preview(data), e);
+        }
+    }
+
+    /**
+     * 原始消息字节数
+     */
+    public int size() {
+        return data.length;
+    }
+
+    // 只输出 messageId，打印日志不会触发其他字段的解码
+    @Override
+    public String toString() {
+        return "TestMessageView(messageId=" + getMessageId() + ", bytes=" + data.length + ")";
+    }
+
+    private Object field(int index) {
+        int bit = 1 << index;
+        if ((decoded & bit) == 0) {
+            try {
+                values[index] = binary ? decodeBinary(index) : decodeJson(index);
+            } catch (IOException | RuntimeException e) {
+                throw new SerializationException("解码 TestMessage 字段 " + JSON_NAMES[index] + " 时出错: "
+                    + JsonCodecSupport.preview(data), e);
+            }
+            decoded |= bit;
+        }
+        return values[index];
+    }
+
+    // 依次跳过前面的字段定位到目标字段，跳过字符串只读长度，不解码内容
+    private Object decodeBinary(int index) {
+        int flags = data[1] & 0xFF;
+        if ((flags & (1 << index)) == 0) {
+            return null;
+        }
+        int[] position = {2};
+        for (int field = 0; field < index; field++) {
+            if ((flags & (1 << field)) == 0) {
+                continue;
+            }
+            switch (field) {
+                case MESSAGE_ID, CONTENT, SENDER, STATUS -> {
+                    int length = (int) readVarLong(position);
+                    position[0] += length;
+                }
+                case RECEIVED_TIME -> {
+                    readVarLong(position);
+                    readVarLong(position);
+                }
+                default -> readVarLong(position);
+            }
+        }
+        return switch (index) {
+            case ID -> unzigzag(readVarLong(position));
+            case RECEIVED_TIME -> {
+                long epochSecond = unzigzag(readVarLong(position));
+                yield LocalDateTime.ofEpochSecond(epochSecond, (int) readVarLong(position), ZoneOffset.UTC);
+            }
+            case PROCESS_COUNT -> (int) unzigzag(readVarLong(position));
+            default -> {
+                int length = (int) readVarLong(position);
+                yield new String(data, position[0], length, StandardCharsets.UTF_8);
+            }
+        };
+    }
+
+    // 流式扫描到目标字段，其余字段的值只做词法跳过，字符串不会被解码成 String
+    private Object decodeJson(int index) throws IOException {
+        try (JsonParser parser = MAPPER.getFactory().createParser(data)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("消息不是 JSON 对象");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if (!JSON_NAMES[index].equals(name)) {
+                    parser.skipChildren();
+                    continue;
+                }
+                if (token == JsonToken.VALUE_NULL) {
+                    return null;
+                }
+                return switch (index) {
+                    case ID -> parser.getLongValue();
+                    case RECEIVED_TIME -> TIME_READER.readValue(parser);
+                    case PROCESS_COUNT -> parser.getIntValue();
+                    default -> parser.getText();
+                };
+            }
+            return null;
+        }
+    }
+
+    private long readVarLong(int[] position) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = data[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("varint 过长, position=" + position[0]);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,43 @@
+package org.zewang.kafkademo.config.serialize;
+
+
+import java.util.Map;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 返回 {@link TestMessageView} 的反序列化器，poll 线程上只判断格式，不解码任何字段；
+ *               按首字节区分二进制格式（版本号）和 JSON，两种生产者可以混用同一个主题
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/19 03:30
+ */
+
+public class TestMessageViewDeserializer implements Deserializer<TestMessageView> {
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        TestMessageBinarySerializer.checkSerializedClass(configs);
+    }
+
+    @Override
+    public TestMessageView deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (data.length >= 2 && data[0] == TestMessageBinarySerializer.VERSION) {
+            return new TestMessageView(data, true);
+        }
+        // JSON 对象以 '{' 开头，前面可能有空白
+        for (byte b : data) {
+            if (b == '{') {
+                return new TestMessageView(data, false);
+            }
+            if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                break;
+            }
+        }
+        throw new SerializationException("无法识别的 TestMessage 格式: " + JsonCodecSupport.preview(data));
+    }
+}
@@ -0,0 +1,112 @@
+package org.zewang.kafkademo.config.serialize;
+
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdDictTrainer;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.kafka.common.errors.SerializationException;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: zstd 字典的训练与加载；字典 ID 取自字典文件头，随消息头传递，
+ *               消费端可以同时加载新旧多份字典，字典轮换时不需要停机
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/19 04:30
+ */
+
+public final class ZstdDictionaries {
+
+    // 配置项：逗号分隔的字典文件路径，序列化器使用第一份，反序列化器加载全部
+    public static final String DICTIONARIES_CONFIG = "zstd.dictionaries";
+    // 配置项：被包装的序列化器/反序列化器类名，默认 String
+    public static final String DELEGATE_CONFIG = "zstd.delegate";
+    // 配置项：压缩级别，默认 3
+    public static final String LEVEL_CONFIG = "zstd.level";
+
+    private ZstdDictionaries() {
+    }
+
+    /**
+     * 用样本消息训练字典
+     * @param samples 样本消息体，数量至少数百条才有意义
+     * @param dictionarySize 字典大小上限（字节），几百字节的消息一般 16KB~64KB 足够
+     */
+    public static byte[] train(Collection<byte[]> samples, int dictionarySize) {
+        long totalSize = samples.stream().mapToLong(sample -> sample.length).sum();
+        ZstdDictTrainer trainer = new ZstdDictTrainer((int) Math.min(Integer.MAX_VALUE, totalSize), dictionarySize);
+        for (byte[] sample : samples) {
+            trainer.addSample(sample);
+        }
+        return trainer.trainSamples();
+    }
+
+    public static int dictionaryId(byte[] dictionary) {
+        long id = Zstd.getDictIdFromDict(dictionary);
+        if (id == 0) {
+            throw new SerializationException("不是有效的 zstd 字典（缺少字典 ID）");
+        }
+        return (int) id;
+    }
+
+    /**
+     * 解析 zstd.dictionaries 配置，按配置顺序返回字典内容
+     */
+    public static List<byte[]> load(Map<String, ?> configs) {
+        Object value = configs.get(DICTIONARIES_CONFIG);
+        List<byte[]> dictionaries = new ArrayList<>();
+        if (value == null) {
+            return dictionaries;
+        }
+        for (String path : value.toString().split(",")) {
+            if (path.isBlank()) {
+                continue;
+            }
+            try {
+                dictionaries.add(Files.readAllBytes(Path.of(path.trim())));
+            } catch (IOException e) {
+                throw new UncheckedIOException("读取 zstd 字典失败: " + path.trim(), e);
+            }
+        }
+        return dictionaries;
+    }
+
+    static int level(Map<String, ?> configs) {
+        Object value = configs.get(LEVEL_CONFIG);
+        return value != null ? Integer.parseInt(value.toString()) : Zstd.defaultCompressionLevel();
+    }
+
+    static ZstdDictCompress compressDictionary(byte[] dictionary, int level) {
+        return new ZstdDictCompress(dictionary, level);
+    }
+
+    static Map<Integer, ZstdDictDecompress> decompressDictionaries(Collection<byte[]> dictionaries) {
+        Map<Integer, ZstdDictDecompress> byId = new LinkedHashMap<>();
+        for (byte[] dictionary : dictionaries) {
+            byId.put(dictionaryId(dictionary), new ZstdDictDecompress(dictionary));
+        }
+        return byId;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T newDelegate(Map<String, ?> configs, Class<?> defaultClass) {
+        Object value = configs.get(DELEGATE_CONFIG);
+        try {
+            Class<?> clazz = value == null ? defaultClass
+                : value instanceof Class<?> c ? c : Class.forName(value.toString());
+            return (T) clazz.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new SerializationException("无法创建被包装的序列化类: " + value, e);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.zewang.kafkademo.config.serialize;
+
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDecompressCtx;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Map;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 与 {@link ZstdDictionarySerializer} 配套的反序列化器包装：按 zstdDictId 消息头选择字典解压后交给被包装的反序列化器，
+ *               没有该消息头的记录原样交给被包装的反序列化器
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/19 04:30
+ */
+
+public class ZstdDictionaryDeserializer<T> implements Deserializer<T> {
+
+    private Deserializer<T> delegate;
+    private Map<Integer, ZstdDictDecompress> dictionaries;
+    // 解压上下文不是线程安全的，每个线程一个，按消息头切换字典
+    private final ThreadLocal<ZstdDecompressCtx> contexts =
+        ThreadLocal.withInitial(() -> new ZstdDecompressCtx().setMagicless(true));
+
+    public ZstdDictionaryDeserializer() {
+    }
+
+    public ZstdDictionaryDeserializer(Deserializer<T> delegate, Collection<byte[]> dictionaries) {
+        this.delegate = delegate;
+        this.dictionaries = ZstdDictionaries.decompressDictionaries(dictionaries);
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        if (delegate == null) {
+            delegate = ZstdDictionaries.newDelegate(configs, StringDeserializer.class);
+        }
+        delegate.configure(configs, isKey);
+        if (dictionaries == null) {
+            dictionaries = ZstdDictionaries.decompressDictionaries(ZstdDictionaries.load(configs));
+        }
+    }
+
+    @Override
+    public T deserialize(String topic, byte[] data) {
+        return delegate.deserialize(topic, data);
+    }
+
+    @Override
+    public T deserialize(String topic, Headers headers, byte[] data) {
+        Header header = headers.lastHeader(ZstdDictionarySerializer.DICTIONARY_ID_HEADER);
+        if (header == null || data == null) {
+            return delegate.deserialize(topic, headers, data);
+        }
+        int dictionaryId = ByteBuffer.wrap(header.value()).getInt();
+        ZstdDictDecompress dictionary = dictionaries != null ? dictionaries.get(dictionaryId) : null;
+        if (dictionary == null) {
+            throw new SerializationException("未加载的 zstd 字典: id=" + Integer.toUnsignedString(dictionaryId));
+        }
+        try {
+            long size = Zstd.getFrameContentSize(data, 0, data.length, true);
+            if (size < 0 || size > Integer.MAX_VALUE) {
+                throw new SerializationException("无法读取解压后的长度: " + size);
+            }
+            byte[] raw = contexts.get().loadDict(dictionary).decompress(data, (int) size);
+            return delegate.deserialize(topic, headers, raw);
+        } catch (ZstdException e) {
+            throw new SerializationException("zstd 解压失败: id=" + Integer.toUnsignedString(dictionaryId), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (delegate != null) {
+            delegate.close();
+        }
+    }
+}
@@ -4,10 +4,13 @@ package org.zewang.kafkademo.consumer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
+import org.zewang.kafkademo.config.serialize.TestMessageView;
 import org.zewang.kafkademo.entity.TestMessage;
+import org.zewang.kafkademo.service.dedup.MessageDeduplicator;
 
 /**
  * @author "Zewang"
@@ -22,6 +25,11 @@ import org.zewang.kafkademo.entity.TestMessage;
 @RequiredArgsConstructor
 public class CustomSerializerConsumer {
 
+    // 与 TestMessageConsumer 共用去重存储，但属于不同的消费组，各自需要处理每条消息一次，标记按消费组区分
+    private static final String LAZY_DEDUP_PREFIX = "custom-serializer-lazy-group:";
+
+    private final MessageDeduplicator messageDeduplicator;
+
     @KafkaListener(
         topics = "test-messages",
         groupId = "custom-serializer-group",
@@ -51,4 +59,36 @@ public class CustomSerializerConsumer {
         }
     }
 
+    // 延迟解码：先只读 messageId 去重，重复的消息不会解析 content 和时间字段
+    @KafkaListener(
+        topics = "test-messages",
+        groupId = "custom-serializer-lazy-group",
+        containerFactory = "lazyCustomKafkaListenerContainerFactory"
+    )
+    public void listenLazy(ConsumerRecord<String, TestMessageView> record, Acknowledgment acknowledgment) {
+        TestMessageView view = record.value();
+        String messageId = view.getMessageId();
+        String dedupId = LAZY_DEDUP_PREFIX + messageId;
+        if (!messageDeduplicator.tryMarkProcessed(dedupId)) {
+            log.info("消息已处理过，跳过: messageId={}, offset={}", messageId, record.offset());
+            acknowledgment.acknowledge();
+            return;
+        }
+
+        try {
+            TestMessage value = view.toTestMessage();
+            log.info("处理TestMessage: messageId={}, content={}",
+                value.getMessageId(), value.getContent());
+
+            messageDeduplicator.confirmProcessed(dedupId,
+                new TopicPartition(record.topic(), record.partition()));
+            acknowledgment.acknowledge();
+        } catch (RuntimeException e) {
+            // 释放标记并抛给容器的错误处理器重试；吞掉异常的话下一条记录的 ack 会越过这条，它不会再被投递
+            messageDeduplicator.unmarkMessage(dedupId);
+            log.error("处理消息时发生错误: key={}, messageId={}, error={}",
+                record.key(), messageId, e.getMessage(), e);
+            throw e;
+        }
+    }
 }
@@ -0,0 +1,63 @@
+package org.zewang.kafkademo.consumer;
+
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: test-messages 的 exactly-once 消费者：消费、转换、生产在同一个 Kafka 事务中完成，
+ *               处理结果与消费 offset 原子提交，不依赖 Redis 去重
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/18 23:30
+ */
+
+@Slf4j
+//@Component
+public class ExactlyOnceTestMessageConsumer {
+
+    public static final String OUTPUT_TOPIC = "test-messages-processed";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final KafkaTemplate<String, String> transactionalKafkaTemplate;
+
+    public ExactlyOnceTestMessageConsumer(
+        @Qualifier("transactionalKafkaTemplate") KafkaTemplate<String, String> transactionalKafkaTemplate) {
+        this.transactionalKafkaTemplate = transactionalKafkaTemplate;
+    }
+
+    /**
+     * 监听test-messages主题的消息
+     * 容器在调用前开启事务，返回后把 offset 加入事务并提交；抛出异常时事务回滚，已发送的结果对
+     * read_committed 消费者不可见，记录会被重新投递
+     * @param record Kafka消息记录
+     */
+//    @KafkaListener(topics = "test-messages", groupId = "test-message-eos-group",
+//        containerFactory = "eosKafkaListenerContainerFactory")
+    public void listen(ConsumerRecord<String, String> record) throws JsonProcessingException {
+        String result = transform(record.value());
+        // 使用与容器相同的事务性生产者工厂，发送自动加入当前事务
+        transactionalKafkaTemplate.send(OUTPUT_TOPIC, record.key(), result);
+        log.debug("消息处理完成: partition={}, offset={}", record.partition(), record.offset());
+    }
+
+    /**
+     * 消息转换逻辑：标记处理状态，基准测试中两种处理路径共用
+     * @param value 原始消息 JSON
+     * @return 处理结果 JSON
+     */
+    public static String transform(String value) throws JsonProcessingException {
+        ObjectNode message = (ObjectNode) OBJECT_MAPPER.readTree(value);
+        message.put("status", "PROCESSED");
+        return OBJECT_MAPPER.writeValueAsString(message);
+    }
+}
@@ -1,19 +1,27 @@
 package org.zewang.kafkademo.consumer;
 
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import java.io.IOException;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.transaction.annotation.Transactional;
+import org.zewang.kafkademo.consumer.parser.AccessLogParser;
+import org.zewang.kafkademo.consumer.parser.FilebeatMessageExtractor;
 import org.zewang.kafkademo.entity.LogEntry;
-import org.zewang.kafkademo.repository.LogEntryRepository;
+import org.zewang.kafkademo.service.log.LogEntryBulkWriter;
+import org.zewang.kafkademo.service.log.LogParsePool;
+import org.zewang.kafkademo.service.log.LogWriteBehindBuffer;
 
 /**
  * @author "Zewang"
@@ -28,31 +36,28 @@ import org.zewang.kafkademo.repository.LogEntryRepository;
 @RequiredArgsConstructor
 public class KafkaLogConsumer {
 
-    private final LogEntryRepository logEntryRepository;
+    private final LogEntryBulkWriter logEntryBulkWriter;
+    private final LogWriteBehindBuffer logWriteBehindBuffer;
+    private final LogParsePool logParsePool;
+    private final MeterRegistry meterRegistry;
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final FilebeatMessageExtractor messageExtractor = new FilebeatMessageExtractor(objectMapper.getFactory());
+    private final AccessLogParser accessLogParser = new AccessLogParser();
 
-    // 假设的常见访问日志格式（结合 Filebeat/Logstash 的通用输出）
-    // 这是一个用于匹配典型 Apache/Nginx combined log format 的正则表达式
-    // 示例日志片段: 192.168.1.10 - - [21/Jun/2024:10:00:00 +0800] "GET /api/status HTTP/1.1" 200 125 5ms "Mozilla/5.0"
-    private static final Pattern LOG_PATTERN = Pattern.compile(
-        "(\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}) - - " +   // 1. IP Address
-            "\\[(.+?)\\] " +                                     // 2. Timestamp (原始格式)
-            "\"(GET|POST|PUT|DELETE|HEAD) (.+?) HTTP/1\\.[01]\" " + // 3. Method, 4. Path
-            "(\\d{3}) " +                                        // 5. Status Code
-            "(\\d+)ms " +                                        // 6. Response Time (这里假设您的日志包含响应时间，例如 5ms)
-            "\"(.+?)\""                                          // 7. User Agent
-    );
-
-    // 常用日期格式：例如 21/Jun/2024:10:00:00 +0800。注意：Filebeat/Kafka 可能会改变日期格式，请根据实际情况调整！
-    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss Z");
+    @PostConstruct
+    public void bindMetrics() {
+        accessLogParser.bindTo(meterRegistry);
+    }
 
     /**
      * Kafka 监听器：消费指定主题中的日志信息
+     * 直接接收记录的原始字节，避免先解码成完整的 JSON 字符串
      */
-//    @KafkaListener(topics = "web-logs", groupId = "${spring.kafka.consumer.group-id}")
+//    @KafkaListener(topics = "web-logs", groupId = "${spring.kafka.consumer.group-id}",
+//        containerFactory = "logKafkaListenerContainerFactory")
     @Transactional
-    public void listen(String jsonMessage) {
-        if (jsonMessage == null || jsonMessage.trim().isEmpty()) {
+    public void listen(byte[] payload) {
+        if (FilebeatMessageExtractor.isBlank(payload)) {
             log.warn("Received empty or null Kafka message. Skipping.");
             return;
         }
@@ -61,31 +66,28 @@ public class KafkaLogConsumer {
 
         try {
             // -------------------- 关键修正点 1: JSON 解析 --------------------
-            JsonNode rootNode = objectMapper.readTree(jsonMessage);
-            JsonNode messageNode = rootNode.get("message");
-
-            if (messageNode != null && messageNode.isTextual()) {
-                rawLogMessage = messageNode.asText();
-            } else {
-                // 如果没有找到 'message' 字段，或者不是文本，可能就是 Filebeat 自己的元数据或旧的测试消息。
-                rawLogMessage = jsonMessage; // 尝试用原始消息进行解析（以防万一）
-            }
+            rawLogMessage = messageExtractor.extract(payload);
 
             log.info("提取原始日志信息: {}", rawLogMessage);
 
             // -------------------- 关键修正点 2: 原始日志解析 --------------------
-            LogEntry logEntry = parseLogMessage(rawLogMessage);
+            LogEntry logEntry;
+            try {
+                logEntry = parseLogMessage(rawLogMessage);
+            } catch (IllegalArgumentException e) {
+                // 日志内容正则表达式匹配失败，只保存原文
+                log.warn("解析日志信息时出错：日志信息与期望格式不匹配，仅保存原文。原始消息: {}", rawLogMessage, e);
+                logEntry = LogEntry.unparsed(rawLogMessage, LocalDateTime.now());
+            }
 
-            // 保存到 MySQL 数据库
-            LogEntry savedEntry = logEntryRepository.save(logEntry);
-            log.debug("成功保存 LogEntry ID: {}", savedEntry.getId());
+            // 保存到 MySQL 数据库，重复投递的日志由唯一约束跳过
+            int inserted = logEntryBulkWriter.write(List.of(logEntry));
+            log.debug("保存 LogEntry 完成: 实际写入={}", inserted);
 
         } catch (IOException e) {
             // JSON 解析失败 (可能不是Filebeat的JSON格式)
-            log.error("JSON解析错误，无法从消息中提取原始日志: {} | Error: {}", jsonMessage, e.getMessage());
-        } catch (IllegalArgumentException e) {
-            // 日志内容正则表达式匹配失败
-            log.warn("解析日志信息时出错：日志信息与期望格式不匹配。原始消息: {}", rawLogMessage, e);
+            log.error("JSON解析错误，无法从消息中提取原始日志: {} | Error: {}",
+                FilebeatMessageExtractor.decodeRaw(payload), e.getMessage());
         } catch (Exception e) {
             // 数据库或其他异常
             log.error("数据库持久化失败: {} | Error: {}", rawLogMessage, e.getMessage(), e);
@@ -93,52 +95,78 @@ public class KafkaLogConsumer {
     }
 
     /**
-     * 解析原始日志信息字符串，并结构化为 LogEntry 对象
+     * Kafka 批量监听器：一次处理一个 poll 批次的日志
+     * 整批解析完成后用 JDBC 批量写入 MySQL，写入成功后才手动提交 offset；
+     * 写库失败时抛出异常，不提交 offset，由容器的错误处理器重试整批。
      */
-    private LogEntry parseLogMessage(String rawLogMessage) throws IllegalArgumentException {
-        Matcher matcher = LOG_PATTERN.matcher(rawLogMessage);
-
-        if (!matcher.find()) {
-            throw new IllegalArgumentException("日志信息与期望格式不匹配");
+//    @KafkaListener(topics = "web-logs", groupId = "${spring.kafka.consumer.group-id}",
+//        containerFactory = "logBatchKafkaListenerContainerFactory")
+    public void listenBatch(List<ConsumerRecord<String, byte[]>> records, Acknowledgment acknowledgment) {
+        List<LogEntry> entries = parseRecords(records);
+
+        if (!entries.isEmpty()) {
+            int inserted = logEntryBulkWriter.write(entries);
+            log.info("批量保存日志完成: 批次记录数={}, 解析成功={}, 实际写入={}",
+                records.size(), entries.size(), inserted);
         }
 
-        LogEntry entry = new LogEntry();
-        entry.setOriginalMessage(rawLogMessage);
+        // 整批已落库（或被判定为无法解析而跳过），提交 offset
+        acknowledgment.acknowledge();
+    }
 
-        try {
-            // IP Address
-            entry.setIdAddress(matcher.group(1));
+    /**
+     * Kafka 批量监听器（write-behind）：poll 线程只解析和入队，写库交给 LogWriteBehindBuffer 的写线程，
+     * MySQL 变慢时不会直接拖住 poll；offset 由本方法在 poll 线程上按分区提交到连续落库的位置。
+     */
+//    @KafkaListener(id = LogWriteBehindBuffer.LISTENER_ID, topics = "web-logs",
+//        groupId = "${spring.kafka.consumer.group-id}",
+//        containerFactory = "logWriteBehindKafkaListenerContainerFactory")
+    public void listenWriteBehind(List<ConsumerRecord<String, byte[]>> records, Consumer<?, ?> consumer) {
+        logWriteBehindBuffer.submit(records, parseRecords(records));
+        logWriteBehindBuffer.commitPersisted(consumer);
+    }
 
-            String rawTimestamp = matcher.group(2).replace(":", " ").replaceFirst(" ", ":");
-            // 假设原始格式是 [21/Jun/2024:10:00:00 +0800] -> 21/Jun/2024:10:00:00 +0800
-            try {
-                LocalDateTime timestamp = LocalDateTime.parse(matcher.group(2), DATE_TIME_FORMATTER);
-                entry.setTimestamp(timestamp);
-            } catch (DateTimeParseException e) {
-                log.warn("用默认格式器解析时间失败：{}", rawTimestamp);
-                entry.setTimestamp(LocalDateTime.now());
+    // 解析一个批次的记录，空消息和无法解析的日志直接跳过；批次较大时分段并行解析，结果保持原顺序
+    private List<LogEntry> parseRecords(List<ConsumerRecord<String, byte[]>> records) {
+        List<LogEntry> parsed = logParsePool.mapOrdered(records, this::parseRecord);
+        List<LogEntry> entries = new ArrayList<>(parsed.size());
+        for (LogEntry entry : parsed) {
+            if (entry != null) {
+                entries.add(entry);
             }
+        }
+        return entries;
+    }
 
-            // 3. HTTP Method
-            entry.setMethod(matcher.group(3));
-
-            // 4. Request Path
-            entry.setPath(matcher.group(4));
-
-            // 5. Status Code
-            entry.setStatusCode(Integer.parseInt(matcher.group(5)));
-
-            // 6. Response Time (移除 'ms' 后解析)
-            String responseTimeStr = matcher.group(6);
-            entry.setResponseTimeMs(Long.parseLong(responseTimeStr));
-
-            // 7. User Agent
-            entry.setUserAgent(matcher.group(7));
+    // 解析单条记录，JSON 无法提取原始日志时返回 null，日志行无法解析时只保存原文；可能在解析线程池中并发执行
+    private LogEntry parseRecord(ConsumerRecord<String, byte[]> record) {
+        byte[] payload = record.value();
+        if (FilebeatMessageExtractor.isBlank(payload)) {
+            log.warn("Received empty or null Kafka message. Skipping. partition={}, offset={}",
+                record.partition(), record.offset());
+            return null;
+        }
 
-            return entry;
-        } catch (Exception e) {
-            throw new IllegalArgumentException("日志信息解析失败：" + e.getMessage());
+        String rawLogMessage = null;
+        try {
+            rawLogMessage = messageExtractor.extract(payload);
+            return parseLogMessage(rawLogMessage);
+        } catch (IOException e) {
+            log.error("JSON解析错误，无法从消息中提取原始日志: {} | Error: {}",
+                FilebeatMessageExtractor.decodeRaw(payload), e.getMessage());
+        } catch (IllegalArgumentException e) {
+            log.warn("解析日志信息时出错：日志信息与期望格式不匹配，仅保存原文。原始消息: {}", rawLogMessage, e);
+            return LogEntry.unparsed(rawLogMessage,
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(record.timestamp()), ZoneId.systemDefault()));
         }
+        return null;
+    }
+
+    /**
+     * 解析原始日志信息字符串，并结构化为 LogEntry 对象
+     */
+    private LogEntry parseLogMessage(String rawLogMessage) throws IllegalArgumentException {
+        return accessLogParser.parse(rawLogMessage);
     }
 
 }
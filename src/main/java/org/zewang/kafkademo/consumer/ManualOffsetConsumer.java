@@ -5,10 +5,13 @@ import java.util.concurrent.atomic.AtomicInteger;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
 import org.zewang.kafkademo.service.RedisDedupService;
+import org.zewang.kafkademo.service.dedup.OffsetWatermarkDeduplicator;
 
 /**
  * @author "Zewang"
@@ -24,8 +27,15 @@ import org.zewang.kafkademo.service.RedisDedupService;
 public class ManualOffsetConsumer {
 
     private final AtomicInteger messageCounter = new AtomicInteger(0);
-    private final RedisDedupService redisDedupService;
+    // 只有 redis 策略才会用到，watermark 策略下不依赖 Redis；redis 策略要求 kafka.dedup.backend=redis
+    private final ObjectProvider<RedisDedupService> redisDedupService;
+    private final OffsetWatermarkDeduplicator offsetWatermarkDeduplicator;
 
+    // redis：以 key_partition_offset 为 ID 写入 Redis；watermark：按分区 offset 水位在内存中去重
+    @Value("${kafka.dedup.offset-strategy:redis}")
+    private String dedupStrategy;
+
+    // watermark 策略需要使用 watermarkKafkaListenerContainerFactory，由它在分区分配时初始化水位
 //    @KafkaListener(topics = "test-topic", groupId = "manual-offset-group")
     public void listen(ConsumerRecord<String, String> record, Acknowledgment acknowledgment) {
         String key = record.key();
@@ -33,16 +43,25 @@ public class ManualOffsetConsumer {
         int partition = record.partition();
         long offset = record.offset();
 
-        String messageId = generateMessageId(key, value, partition, offset);
-
         log.info("成功收到消息：key={}, value={}, partition={}, offset={}", key, value, partition, offset);
 
+        boolean watermark = "watermark".equals(dedupStrategy);
+        if (watermark && offsetWatermarkDeduplicator.isProcessed(record)) {
+            // 不提交 offset：已提交的位置已经在这条记录之后，再次提交会让 offset 回退
+            log.warn("检测到重复消息，已跳过处理: partition={}, offset={}", partition, offset);
+            return;
+        }
+
         try {
             // 模拟业务处理
             processSingleMessage(value);
 
             // 标记消息已处理
-            redisDedupService.markMessageAsProcessed(messageId);
+            if (watermark) {
+                offsetWatermarkDeduplicator.markProcessed(record);
+            } else {
+                redisDedupService.getObject().markMessageAsProcessed(generateMessageId(key, value, partition, offset));
+            }
 
             // 手动提交 offset
             acknowledgment.acknowledge();
@@ -6,13 +6,24 @@ import jakarta.annotation.PostConstruct;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.annotation.DltHandler;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.retrytopic.TopicSuffixingStrategy;
 import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.retry.annotation.Backoff;
+import org.zewang.kafkademo.consumer.support.RetryTopicMetrics;
 import org.zewang.kafkademo.entity.TestMessage;
-import org.zewang.kafkademo.service.RedisDedupService;
+import org.zewang.kafkademo.service.ParallelMessageProcessor;
 import org.zewang.kafkademo.service.TestMessageService;
+import org.zewang.kafkademo.service.dedup.MessageDeduplicator;
+import org.zewang.kafkademo.util.MessageHeaders;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -28,9 +39,12 @@ import java.util.concurrent.atomic.AtomicInteger;
 public class TestMessageConsumer {
 
     private final TestMessageService testMessageService;
-    private final RedisDedupService redisDedupService;
+    private final MessageDeduplicator messageDeduplicator;
+    private final ParallelMessageProcessor parallelMessageProcessor;
+    private final RetryTopicMetrics retryTopicMetrics;
     private final ObjectMapper objectMapper = new ObjectMapper();
     private final AtomicInteger messageCounter = new AtomicInteger(0);
+    private static final String TOPIC = "test-messages";
 
     @PostConstruct
     public void init() {
@@ -39,11 +53,27 @@ public class TestMessageConsumer {
 
     /**
      * 监听test-messages主题的消息
+     * 处理失败的消息转发到按指数退避延迟消费的重试主题（test-messages-retry-0、-retry-1 ...），
+     * 重试用尽后进入死信主题 test-messages-dlt，主分区不会因为失败消息的重试而阻塞。
+     * 主主题使用带头部预过滤的工厂；重试主题和死信主题的容器使用不带预过滤的 kafkaListenerContainerFactory，
+     * 转发时复制过去的 dedupClaimed 头在那里不算数
      * @param record Kafka消息记录
      * @param acknowledgment 手动确认对象
      */
-//    @KafkaListener(topics = "test-messages", groupId = "test-message-group")
+//    @KafkaListener(topics = "test-messages", groupId = "test-message-group",
+//        containerFactory = "testMessageKafkaListenerContainerFactory")
+    @RetryableTopic(
+        attempts = "${kafka.retry-topic.attempts:4}",
+        backoff = @Backoff(delayExpression = "${kafka.retry-topic.initial-delay-ms:1000}",
+            multiplierExpression = "${kafka.retry-topic.multiplier:2}",
+            maxDelayExpression = "${kafka.retry-topic.max-delay-ms:10000}"),
+        kafkaTemplate = "kafkaTemplateAcksAll",
+        listenerContainerFactory = "kafkaListenerContainerFactory",
+        numPartitions = "3",
+        replicationFactor = "1",
+        topicSuffixingStrategy = TopicSuffixingStrategy.SUFFIX_WITH_INDEX_VALUE)
     public void listen(ConsumerRecord<String, String> record, Acknowledgment acknowledgment) {
+        retryTopicMetrics.recordDelivery(TOPIC, record);
         String key = record.key();
         String value = record.value();
         int partition = record.partition();
@@ -56,18 +86,25 @@ public class TestMessageConsumer {
             TestMessageDto messageDto = objectMapper.readValue(value, TestMessageDto.class);
             log.info("成功解析消息: messageId={}", messageDto.getMessageId());
 
-            // 使用Redis检查消息是否已处理（去重）
-            if (redisDedupService.isMessageProcessed(messageDto.getMessageId())) {
+            // 原子地检查并标记消息（去重），并发重投时只有一个能通过；
+            // 主主题上带 messageId 头的记录已经在头部预过滤中抢占过标记，重复的不会到这里
+            boolean claimedByFilter = TOPIC.equals(record.topic()) && MessageHeaders.isDedupClaimed(record.headers());
+            if (!claimedByFilter
+                && !messageDeduplicator.tryMarkProcessed(messageDto.getMessageId())) {
                 log.warn("检测到重复消息，已跳过处理: messageId={}", messageDto.getMessageId());
                 acknowledgment.acknowledge(); // 提交offset
                 return;
             }
 
-            // 模拟业务处理
-            processMessage(messageDto);
-
-            // 标记消息已处理到Redis
-            redisDedupService.markMessageAsProcessed(messageDto.getMessageId());
+            // 模拟业务处理，失败时释放标记，让重投的消息可以再次处理
+            try {
+                processMessage(messageDto);
+            } catch (Exception e) {
+                messageDeduplicator.unmarkMessage(messageDto.getMessageId());
+                throw e;
+            }
+            messageDeduplicator.confirmProcessed(messageDto.getMessageId(),
+                new TopicPartition(record.topic(), partition));
 
             // 手动提交offset
             acknowledgment.acknowledge();
@@ -86,11 +123,179 @@ public class TestMessageConsumer {
 
 
     /**
-     * 处理消息业务逻辑
+     * 重试用尽的消息，记录日志后提交 offset
+     * @param record 死信主题中的消息记录
+     * @param acknowledgment 手动确认对象
+     */
+    @DltHandler
+    public void handleDlt(ConsumerRecord<String, String> record, Acknowledgment acknowledgment) {
+        retryTopicMetrics.recordDelivery(TOPIC, record);
+        log.error("消息重试用尽，进入死信主题: topic={}, key={}, offset={}, value={}",
+            record.topic(), record.key(), record.offset(), record.value());
+        acknowledgment.acknowledge();
+    }
+
+    /**
+     * 批量监听test-messages主题的消息
+     * 整批消息的去重标记一次完成（Redis 后端为一次 pipeline），开销不再随消息数 × RTT 增长。
+     * 处理完成的消息整批一次 upsert 入库。某条消息处理失败时，先保存它之前已处理完的消息，
+     * 再释放它及其后尚未处理的消息的标记并抛出异常，由错误处理器重试整批；
+     * 已经保存的消息保留标记，重试时会被当作重复跳过。
+     * @param records 一个 poll 批次的消息记录
+     * @param acknowledgment 手动确认对象
+     */
+//    @KafkaListener(topics = "test-messages", groupId = "test-message-group",
+//        containerFactory = "testMessageBatchKafkaListenerContainerFactory")
+    public void listenBatch(List<ConsumerRecord<String, String>> records, Acknowledgment acknowledgment) {
+        List<TestMessageDto> messages = new ArrayList<>(records.size());
+        List<TopicPartition> partitions = new ArrayList<>(records.size());
+        List<Boolean> preClaimed = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, String> record : records) {
+            try {
+                messages.add(objectMapper.readValue(record.value(), TestMessageDto.class));
+                partitions.add(new TopicPartition(record.topic(), record.partition()));
+                preClaimed.add(MessageHeaders.isDedupClaimed(record.headers()));
+            } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
+                // 对于无法解析的消息，记录错误并跳过，避免整批无限重试
+                log.error("JSON解析失败，跳过此消息: partition={}, offset={}, error={}",
+                    record.partition(), record.offset(), e.getMessage());
+            }
+        }
+
+        List<String> messageIds = messages.stream().map(TestMessageDto::getMessageId).toList();
+        // 头部预过滤已经抢占过标记的记录不再重复抢占，只对其余记录批量抢占
+        List<String> unclaimedIds = new ArrayList<>();
+        for (int i = 0; i < messages.size(); i++) {
+            if (!preClaimed.get(i)) {
+                unclaimedIds.add(messageIds.get(i));
+            }
+        }
+        List<Boolean> batchClaimed = unclaimedIds.isEmpty()
+            ? List.of() : messageDeduplicator.tryMarkProcessedBatch(unclaimedIds);
+        List<Boolean> claimed = new ArrayList<>(messages.size());
+        for (int i = 0, next = 0; i < messages.size(); i++) {
+            claimed.add(preClaimed.get(i) || batchClaimed.get(next++));
+        }
+
+        // 逐条完成业务处理，处理结果攒成一批统一 upsert，每批只有一次数据库往返
+        List<TestMessage> prepared = new ArrayList<>(messages.size());
+        List<Integer> preparedIndexes = new ArrayList<>(messages.size());
+        int duplicates = 0;
+        int failedAt = -1;
+        Exception failure = null;
+        for (int i = 0; i < messages.size(); i++) {
+            if (!claimed.get(i)) {
+                duplicates++;
+                continue;
+            }
+            try {
+                prepared.add(prepareMessage(messages.get(i)));
+                preparedIndexes.add(i);
+            } catch (Exception e) {
+                failedAt = i;
+                failure = e;
+                break;
+            }
+        }
+
+        if (!prepared.isEmpty()) {
+            try {
+                // upsert 写入：重复投递的消息只增加 processCount，不会因唯一约束失败而触发重试
+                testMessageService.upsertMessages(prepared);
+            } catch (RuntimeException e) {
+                // 整批写入失败，释放所有已抢占的标记，由错误处理器重试整批
+                List<String> claimedIds = new ArrayList<>();
+                for (int i = 0; i < messages.size(); i++) {
+                    if (claimed.get(i)) {
+                        claimedIds.add(messageIds.get(i));
+                    }
+                }
+                messageDeduplicator.unmarkMessages(claimedIds);
+                log.error("批量保存消息时发生错误: 条数={}, error={}", prepared.size(), e.getMessage(), e);
+                throw new RuntimeException("消息处理失败: " + e.getMessage(), e);
+            }
+            for (int i : preparedIndexes) {
+                messageDeduplicator.confirmProcessed(messageIds.get(i), partitions.get(i));
+            }
+        }
+
+        if (failure != null) {
+            List<String> unprocessed = new ArrayList<>();
+            for (int j = failedAt; j < messages.size(); j++) {
+                if (claimed.get(j)) {
+                    unprocessed.add(messageIds.get(j));
+                }
+            }
+            messageDeduplicator.unmarkMessages(unprocessed);
+            log.error("批量处理消息时发生错误: messageId={}, error={}", messageIds.get(failedAt),
+                failure.getMessage(), failure);
+            throw new RuntimeException("消息处理失败: " + failure.getMessage(), failure);
+        }
+
+        acknowledgment.acknowledge();
+        log.info("批量消息处理完成并提交offset: 批次记录数={}, 处理={}, 重复={}", records.size(), prepared.size(), duplicates);
+    }
+
+    /**
+     * 并行监听test-messages主题的消息
+     * 批次内的记录按 key 分派并发处理，同一 key 保持顺序，处理以 I/O 等待为主时在途记录数可以远大于分区数；
+     * poll 线程只负责分派和提交已连续处理完成的 offset，容器本身不提交
+     * @param records 一个 poll 批次的消息记录
+     * @param consumer 当前消费者，用于在 poll 线程上提交 offset
+     */
+//    @KafkaListener(id = ParallelMessageProcessor.LISTENER_ID, topics = "test-messages",
+//        groupId = "test-message-group", containerFactory = "parallelKafkaListenerContainerFactory")
+    public void listenParallel(List<ConsumerRecord<String, String>> records, Consumer<?, ?> consumer) {
+        parallelMessageProcessor.submit(records, this::handleRecord);
+        parallelMessageProcessor.commitCompleted(consumer);
+    }
+
+    // 并行模式下单条记录的处理：去重、处理，失败时释放标记并抛出异常交给 ParallelMessageProcessor 重试
+    private void handleRecord(ConsumerRecord<String, String> record) throws Exception {
+        TestMessageDto messageDto;
+        try {
+            messageDto = objectMapper.readValue(record.value(), TestMessageDto.class);
+        } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
+            // 对于无法解析的消息，记录错误并跳过，重试也不会成功
+            log.error("JSON解析失败，跳过此消息: partition={}, offset={}, error={}",
+                record.partition(), record.offset(), e.getMessage());
+            return;
+        }
+
+        if (!messageDeduplicator.tryMarkProcessed(messageDto.getMessageId())) {
+            log.warn("检测到重复消息，已跳过处理: messageId={}", messageDto.getMessageId());
+            return;
+        }
+        try {
+            processMessage(messageDto);
+        } catch (Exception e) {
+            messageDeduplicator.unmarkMessage(messageDto.getMessageId());
+            throw e;
+        }
+        messageDeduplicator.confirmProcessed(messageDto.getMessageId(),
+            new TopicPartition(record.topic(), record.partition()));
+    }
+
+    /**
+     * 处理单条消息：业务处理后立即保存
      * @param messageDto 消息数据传输对象
      * @throws Exception 处理异常
      */
     private void processMessage(TestMessageDto messageDto) throws Exception {
+        TestMessage testMessage = prepareMessage(messageDto);
+
+        log.debug("准备保存消息到数据库: messageId={}", messageDto.getMessageId());
+        // upsert 写入：重复投递的消息只增加 processCount，不会因唯一约束失败而触发重试
+        testMessageService.upsertMessages(List.of(testMessage));
+        log.info("消息处理成功: messageId={}", messageDto.getMessageId());
+    }
+
+    /**
+     * 处理消息业务逻辑，返回待保存的实体，由调用方单条或整批写入数据库
+     * @param messageDto 消息数据传输对象
+     * @throws Exception 处理异常
+     */
+    private TestMessage prepareMessage(TestMessageDto messageDto) throws Exception {
         log.debug("开始处理消息: messageId={}", messageDto.getMessageId());
 
         int count = messageCounter.incrementAndGet();
@@ -102,7 +307,9 @@ public class TestMessageConsumer {
             throw new RuntimeException("模拟业务处理失败: messageId=" + messageDto.getMessageId());
         }
 
-        // 保存消息到数据库
+        // 模拟处理耗时
+        Thread.sleep(100);
+
         TestMessage testMessage = new TestMessage();
         testMessage.setMessageId(messageDto.getMessageId());
         testMessage.setContent(messageDto.getContent());
@@ -110,14 +317,7 @@ public class TestMessageConsumer {
         testMessage.setReceivedTime(LocalDateTime.now());
         testMessage.setStatus("PROCESSED");
         testMessage.setProcessCount(1);
-
-        log.debug("准备保存消息到数据库: messageId={}", messageDto.getMessageId());
-        testMessageService.saveMessage(testMessage);
-        log.debug("消息保存完成: messageId={}", messageDto.getMessageId());
-
-        // 模拟处理耗时
-        Thread.sleep(100);
-        log.info("消息处理成功: messageId={}", messageDto.getMessageId());
+        return testMessage;
     }
 
 
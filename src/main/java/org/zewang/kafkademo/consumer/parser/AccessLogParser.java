@@ -0,0 +1,348 @@
+package org.zewang.kafkademo.consumer.parser;
+
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import lombok.extern.slf4j.Slf4j;
+import org.zewang.kafkademo.entity.LogEntry;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 访问日志解析器，逐字符单遍扫描 combined 格式，无法识别时回退到正则解析
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/18 11:00
+ */
+
+@Slf4j
+public class AccessLogParser implements MeterBinder {
+
+    // 假设的常见访问日志格式（结合 Filebeat/Logstash 的通用输出）
+    // 这是一个用于匹配典型 Apache/Nginx combined log format 的正则表达式
+    // 示例日志片段: 192.168.1.10 - - [21/Jun/2024:10:00:00 +0800] "GET /api/status HTTP/1.1" 200 125 5ms "Mozilla/5.0"
+    static final Pattern LOG_PATTERN = Pattern.compile(
+        "(\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}) - - " +   // 1. IP Address
+            "\\[(.+?)\\] " +                                     // 2. Timestamp (原始格式)
+            "\"(GET|POST|PUT|DELETE|HEAD) (.+?) HTTP/1\\.[01]\" " + // 3. Method, 4. Path
+            "(\\d{3}) " +                                        // 5. Status Code
+            "(\\d+)ms " +                                        // 6. Response Time (这里假设您的日志包含响应时间，例如 5ms)
+            "\"(.+?)\""                                          // 7. User Agent
+    );
+
+    // 常用日期格式：例如 21/Jun/2024:10:00:00 +0800。注意：Filebeat/Kafka 可能会改变日期格式，请根据实际情况调整！
+    static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss Z");
+
+    private static final String[] METHODS = {"GET", "POST", "PUT", "DELETE", "HEAD"};
+
+    // 标准时间戳 "21/Jun/2024:10:00:00 +0800" 的长度以及秒字段的位置
+    private static final int TIMESTAMP_LENGTH = 26;
+    private static final int SECOND_INDEX = 18;
+
+    // 最近一次解析成功的时间戳，按"分钟"缓存：同一分钟内的日志只需要替换秒字段
+    private volatile MinuteCache minuteCache;
+
+    // 路径和 User-Agent 的取值集中在几百个以内，复用同一个实例，减少分配和批次缓冲占用的堆
+    // 方法名在扫描时已经直接取自 METHODS 常量
+    private final StringCanonicalizer pathCanonicalizer = new StringCanonicalizer("path", 4096, 256);
+    private final StringCanonicalizer userAgentCanonicalizer = new StringCanonicalizer("user_agent", 1024, 512);
+
+    /**
+     * 解析原始日志信息字符串，并结构化为 LogEntry 对象
+     * 先走单遍扫描；扫描器只接受从行首开始、严格符合格式的日志，
+     * 其余情况（包括正则需要回溯才能匹配的行）全部交给正则解析，保证结果与正则路径一致。
+     */
+    public LogEntry parse(String rawLogMessage) throws IllegalArgumentException {
+        LogEntry entry = scan(rawLogMessage);
+        return entry != null ? entry : parseWithRegex(rawLogMessage);
+    }
+
+    /**
+     * 把规范化缓存的命中率指标注册到 registry
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        pathCanonicalizer.bindTo(registry);
+        userAgentCanonicalizer.bindTo(registry);
+    }
+
+    /**
+     * 基于 LOG_PATTERN 的原始解析逻辑，作为回退路径和性能对比基准
+     */
+    public LogEntry parseWithRegex(String rawLogMessage) throws IllegalArgumentException {
+        Matcher matcher = LOG_PATTERN.matcher(rawLogMessage);
+
+        if (!matcher.find()) {
+            throw new IllegalArgumentException("日志信息与期望格式不匹配");
+        }
+
+        LogEntry entry = new LogEntry();
+        entry.setOriginalMessage(rawLogMessage);
+
+        try {
+            // IP Address
+            entry.setIdAddress(matcher.group(1));
+
+            String rawTimestamp = matcher.group(2).replace(":", " ").replaceFirst(" ", ":");
+            // 假设原始格式是 [21/Jun/2024:10:00:00 +0800] -> 21/Jun/2024:10:00:00 +0800
+            try {
+                LocalDateTime timestamp = LocalDateTime.parse(matcher.group(2), DATE_TIME_FORMATTER);
+                entry.setTimestamp(timestamp);
+            } catch (DateTimeParseException e) {
+                log.warn("用默认格式器解析时间失败：{}", rawTimestamp);
+                entry.setTimestamp(LocalDateTime.now());
+                entry.setPartiallyParsed(true);
+            }
+
+            // 3. HTTP Method
+            entry.setMethod(matcher.group(3));
+
+            // 4. Request Path
+            entry.setPath(matcher.group(4));
+
+            // 5. Status Code
+            entry.setStatusCode(Integer.parseInt(matcher.group(5)));
+
+            // 6. Response Time (移除 'ms' 后解析)
+            String responseTimeStr = matcher.group(6);
+            entry.setResponseTimeMs(Long.parseLong(responseTimeStr));
+
+            // 7. User Agent
+            entry.setUserAgent(matcher.group(7));
+
+            return entry;
+        } catch (Exception e) {
+            throw new IllegalArgumentException("日志信息解析失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 单遍扫描。返回 null 表示这一行不在快速路径的处理范围内，需要回退到正则。
+     */
+    private LogEntry scan(String line) {
+        int len = line.length();
+
+        // 1. IP Address: 四段 1~3 位数字
+        int pos = 0;
+        for (int part = 0; part < 4; part++) {
+            int digits = 0;
+            while (pos < len && digits < 3 && isDigit(line.charAt(pos))) {
+                pos++;
+                digits++;
+            }
+            if (digits == 0 || pos >= len) {
+                return null;
+            }
+            char sep = line.charAt(pos);
+            if (part < 3 ? sep != '.' : sep != ' ') {
+                return null;
+            }
+            if (part < 3) {
+                pos++;
+            }
+        }
+        int ipEnd = pos;
+
+        // 跳过 " - - [" ，这几个字段不需要保留
+        if (!line.startsWith(" - - [", pos)) {
+            return null;
+        }
+        pos += 6;
+
+        // 2. Timestamp: 第一个 "] " 之前的内容
+        int tsStart = pos;
+        int tsEnd = indexOfPair(line, tsStart, ']', ' ');
+        if (tsEnd < 0) {
+            return null;
+        }
+        pos = tsEnd + 2;
+
+        // 3. HTTP Method
+        if (pos >= len || line.charAt(pos) != '"') {
+            return null;
+        }
+        pos++;
+        String method = null;
+        for (String candidate : METHODS) {
+            if (line.startsWith(candidate, pos)
+                && pos + candidate.length() < len && line.charAt(pos + candidate.length()) == ' ') {
+                method = candidate;
+                break;
+            }
+        }
+        if (method == null) {
+            return null;
+        }
+        pos += method.length() + 1;
+
+        // 4. Request Path: 第一个 ' HTTP/1.[01]" ' 之前的内容，协议版本不保留
+        int pathStart = pos;
+        int pathEnd = indexOfProtocol(line, pathStart);
+        if (pathEnd < 0) {
+            return null;
+        }
+        pos = pathEnd + 11;
+
+        // 5. Status Code: 恰好 3 位数字
+        if (pos + 4 > len || line.charAt(pos + 3) != ' ') {
+            return null;
+        }
+        int statusCode = 0;
+        for (int i = pos; i < pos + 3; i++) {
+            char c = line.charAt(i);
+            if (!isDigit(c)) {
+                return null;
+            }
+            statusCode = statusCode * 10 + (c - '0');
+        }
+        pos += 4;
+
+        // 6. Response Time: 数字后紧跟 "ms "
+        int rtStart = pos;
+        long responseTimeMs = 0;
+        while (pos < len && isDigit(line.charAt(pos))) {
+            responseTimeMs = responseTimeMs * 10 + (line.charAt(pos) - '0');
+            pos++;
+        }
+        // 超过 18 位可能溢出 long，交给正则路径按原逻辑抛出异常
+        if (pos == rtStart || pos - rtStart > 18 || !line.startsWith("ms \"", pos)) {
+            return null;
+        }
+        pos += 4;
+
+        // 7. User Agent: 到下一个双引号为止
+        int uaStart = pos;
+        int uaEnd = indexOfChar(line, uaStart, '"');
+        if (uaEnd < 0) {
+            return null;
+        }
+
+        LogEntry entry = new LogEntry();
+        entry.setOriginalMessage(line);
+        entry.setIdAddress(line.substring(0, ipEnd));
+        LocalDateTime timestamp = parseTimestamp(line, tsStart, tsEnd);
+        if (timestamp == null) {
+            timestamp = LocalDateTime.now();
+            entry.setPartiallyParsed(true);
+        }
+        entry.setTimestamp(timestamp);
+        entry.setMethod(method);
+        entry.setPath(pathCanonicalizer.canonicalize(line, pathStart, pathEnd));
+        entry.setStatusCode(statusCode);
+        entry.setResponseTimeMs(responseTimeMs);
+        entry.setUserAgent(userAgentCanonicalizer.canonicalize(line, uaStart, uaEnd));
+        return entry;
+    }
+
+    /**
+     * 解析时间戳。命中分钟缓存时只读取秒字段，不创建子串也不经过 DateTimeFormatter。
+     * 解析失败时返回 null，由调用方回退到当前时间并标记为部分解析。
+     */
+    private LocalDateTime parseTimestamp(String line, int start, int end) {
+        MinuteCache cache = minuteCache;
+        if (cache != null && end - start == TIMESTAMP_LENGTH) {
+            int second = readSecond(line, start);
+            if (second >= 0 && cache.matches(line, start)) {
+                return cache.minute().withSecond(second);
+            }
+        }
+
+        String text = line.substring(start, end);
+        try {
+            LocalDateTime timestamp = LocalDateTime.parse(text, DATE_TIME_FORMATTER);
+            if (text.length() == TIMESTAMP_LENGTH && readSecond(text, 0) >= 0) {
+                minuteCache = new MinuteCache(text, timestamp.withSecond(0));
+            }
+            return timestamp;
+        } catch (DateTimeParseException e) {
+            String rawTimestamp = text.replace(":", " ").replaceFirst(" ", ":");
+            log.warn("用默认格式器解析时间失败：{}", rawTimestamp);
+            return null;
+        }
+    }
+
+    // 读取标准格式时间戳中的秒字段，格式不符或不在 0~59 范围内时返回 -1
+    private static int readSecond(String text, int start) {
+        char colon = text.charAt(start + SECOND_INDEX - 1);
+        char tens = text.charAt(start + SECOND_INDEX);
+        char ones = text.charAt(start + SECOND_INDEX + 1);
+        char space = text.charAt(start + SECOND_INDEX + 2);
+        if (colon != ':' || space != ' ' || tens < '0' || tens > '5' || !isDigit(ones)) {
+            return -1;
+        }
+        return (tens - '0') * 10 + (ones - '0');
+    }
+
+    // 以下查找方法对应正则中的 (.+?)：分隔符前至少要有一个字符，
+    // 遇到正则 '.' 不能匹配的行终止符时返回 -1
+
+    // 查找 first 后紧跟 second 的位置
+    private static int indexOfPair(String line, int start, char first, char second) {
+        for (int i = start; i < line.length() - 1; i++) {
+            char c = line.charAt(i);
+            if (i > start && c == first && line.charAt(i + 1) == second) {
+                return i;
+            }
+            if (isLineTerminator(c)) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOfChar(String line, int start, char target) {
+        for (int i = start; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (i > start && c == target) {
+                return i;
+            }
+            if (isLineTerminator(c)) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    // 查找 ' HTTP/1.0" ' 或 ' HTTP/1.1" '
+    private static int indexOfProtocol(String line, int start) {
+        for (int i = start; i + 11 <= line.length(); i++) {
+            char c = line.charAt(i);
+            if (i > start && c == ' ' && line.startsWith("HTTP/1.", i + 1)) {
+                char minor = line.charAt(i + 8);
+                if ((minor == '0' || minor == '1') && line.charAt(i + 9) == '"' && line.charAt(i + 10) == ' ') {
+                    return i;
+                }
+            }
+            if (isLineTerminator(c)) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // 与 java.util.regex 中 '.' 的默认语义一致
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /**
+     * 分钟缓存：保存一个完整时间戳文本及其对应的整分钟时间，
+     * 比较时忽略秒字段，因此同一分钟内的日志都能命中。
+     */
+    private record MinuteCache(String text, LocalDateTime minute) {
+
+        boolean matches(String line, int start) {
+            return line.regionMatches(start, text, 0, SECOND_INDEX)
+                && line.regionMatches(start + SECOND_INDEX + 2, text, SECOND_INDEX + 2,
+                TIMESTAMP_LENGTH - SECOND_INDEX - 2);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.zewang.kafkademo.consumer.parser;
+
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 以流式方式从 Filebeat 输出的 JSON 中提取 "message" 字段，不构建 JsonNode 树
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/18 14:00
+ */
+
+public class FilebeatMessageExtractor {
+
+    private static final String MESSAGE_FIELD = "message";
+
+    private final JsonFactory jsonFactory;
+
+    public FilebeatMessageExtractor(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    /**
+     * 提取原始日志行
+     * 流式遍历顶层字段，agent、host、ecs 等元数据对象用 skipChildren 跳过，不解析成节点；
+     * 仍然读到对象结束，截断或格式错误的 JSON 照样抛出异常，"message" 重复时取最后一个（与之前 readTree 的行为一致）。
+     * 如果没有 'message' 字段，或者它不是文本，则退回到整条消息本身。
+     * @param payload Kafka 记录的原始字节
+     * @return 原始日志行
+     * @throws IOException 消息不是合法的 JSON
+     */
+    public String extract(byte[] payload) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return decodeRaw(payload);
+            }
+
+            String message = null;
+            String fieldName;
+            while ((fieldName = parser.nextFieldName()) != null) {
+                JsonToken valueToken = parser.nextToken();
+                if (MESSAGE_FIELD.equals(fieldName)) {
+                    message = valueToken == JsonToken.VALUE_STRING ? parser.getText() : null;
+                }
+                // 跳过不关心的字段，对象和数组整体跳过
+                parser.skipChildren();
+            }
+            return message != null ? message : decodeRaw(payload);
+        }
+    }
+
+    /**
+     * 判断消息是否为空或只包含空白字符（与 String.trim().isEmpty() 的判断一致）
+     */
+    public static boolean isBlank(byte[] payload) {
+        if (payload == null) {
+            return true;
+        }
+        for (byte b : payload) {
+            if ((b & 0xFF) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static String decodeRaw(byte[] payload) {
+        return new String(payload, StandardCharsets.UTF_8);
+    }
+}
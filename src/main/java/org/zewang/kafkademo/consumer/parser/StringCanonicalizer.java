@@ -0,0 +1,152 @@
+package org.zewang.kafkademo.consumer.parser;
+
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 有界的字符串规范化缓存：对低基数字段（路径、User-Agent）复用同一个 String 实例；
+ *               直接按字符区间计算哈希并比较，命中时不会创建子串
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/18 19:00
+ */
+
+public class StringCanonicalizer implements MeterBinder {
+
+    private final String field;
+    private final String[] slots;
+    private final int mask;
+    private final int maxLength;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param field 字段名，作为指标的 tag
+     * @param capacity 槽位数，向上取整到 2 的幂
+     * @param maxLength 超过该长度的值不进入缓存（通常是带 ID 或参数的一次性值）
+     */
+    public StringCanonicalizer(String field, int capacity, int maxLength) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.field = field;
+        this.slots = new String[size];
+        this.mask = size - 1;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * 返回 source[start, end) 对应的规范实例，缓存命中时不分配新字符串
+     */
+    public String canonicalize(String source, int start, int end) {
+        int length = end - start;
+        if (length > maxLength) {
+            misses.increment();
+            return source.substring(start, end);
+        }
+        int hash = sampledHash(source, start, end);
+        // 两路组相联：slot 与相邻 slot 都可以存放，减少两个热点值互相挤占
+        int index = spread(hash) & mask;
+        String cached = lookup(index, source, start, length);
+        if (cached != null) {
+            return cached;
+        }
+        String value = source.substring(start, end);
+        store(index, value);
+        return value;
+    }
+
+    /**
+     * 返回 value 的规范实例，适用于值已经被创建出来的场景（例如正则分组）
+     */
+    public String canonicalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        return canonicalize(value, 0, value.length());
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("log.parser.canonical.cache", hits, LongAdder::sum)
+            .description("字符串规范化缓存的查询次数")
+            .tags("field", field, "result", "hit")
+            .register(registry);
+        FunctionCounter.builder("log.parser.canonical.cache", misses, LongAdder::sum)
+            .description("字符串规范化缓存的查询次数")
+            .tags("field", field, "result", "miss")
+            .register(registry);
+        Gauge.builder("log.parser.canonical.cache.hit.ratio", this, StringCanonicalizer::hitRatio)
+            .description("字符串规范化缓存的累计命中率")
+            .tag("field", field)
+            .register(registry);
+    }
+
+    private double hitRatio() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    // 只对长度和最多 17 个等距采样字符求哈希，User-Agent 这类长字符串不必逐字符计算；
+    // 是否真正相等由 regionMatches 确认，哈希冲突只会造成一次未命中
+    private static int sampledHash(String source, int start, int end) {
+        int length = end - start;
+        int hash = length;
+        int step = Math.max(1, length >>> 4);
+        for (int i = start; i < end; i += step) {
+            hash = 31 * hash + source.charAt(i);
+        }
+        return length == 0 ? hash : 31 * hash + source.charAt(end - 1);
+    }
+
+    private String lookup(int index, String source, int start, int length) {
+        // 槽位之间的读写不加锁：String 不可变，最坏情况只是一次额外的未命中
+        String first = slots[index];
+        if (matches(first, source, start, length)) {
+            hits.increment();
+            return first;
+        }
+        String second = slots[index ^ 1];
+        if (matches(second, source, start, length)) {
+            hits.increment();
+            return second;
+        }
+        misses.increment();
+        return null;
+    }
+
+    private void store(int index, String value) {
+        if (slots[index] == null) {
+            slots[index] = value;
+        } else if (slots[index ^ 1] == null) {
+            slots[index ^ 1] = value;
+        } else {
+            // 两个槽位都已占用：新值放入主槽位，原值移到相邻槽位，淘汰相邻槽位中较旧的值
+            slots[index ^ 1] = slots[index];
+            slots[index] = value;
+        }
+    }
+
+    private static boolean matches(String cached, String source, int start, int length) {
+        return cached != null
+            && cached.length() == length
+            && cached.regionMatches(0, source, start, length);
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
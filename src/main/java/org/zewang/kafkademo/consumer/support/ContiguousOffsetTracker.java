@@ -0,0 +1,163 @@
+package org.zewang.kafkademo.consumer.support;
+
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 按分区跟踪异步处理中的 offset 区间，只有从头开始连续完成的部分才允许提交；
+ *               某个区间处理失败或尚未完成时，它之后已经完成的区间也不会被提交
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/18 16:00
+ */
+
+public class ContiguousOffsetTracker {
+
+    private final ConcurrentMap<TopicPartition, PartitionState> partitions = new ConcurrentHashMap<>();
+
+    /**
+     * 登记一段开始异步处理的 offset 区间，同一分区的区间必须按 offset 递增的顺序登记
+     * @param partition 分区
+     * @param firstOffset 区间内第一条记录的 offset
+     * @param lastOffset 区间内最后一条记录的 offset
+     * @return 区间句柄，处理完成后调用 {@link Segment#complete()}
+     */
+    public Segment begin(TopicPartition partition, long firstOffset, long lastOffset) {
+        PartitionState state = partitions.computeIfAbsent(partition, tp -> new PartitionState());
+        Segment segment = new Segment(state, firstOffset, lastOffset);
+        synchronized (state) {
+            state.pending.addLast(segment);
+        }
+        return segment;
+    }
+
+    /**
+     * 计算给定分区中可以提交的 offset（已连续完成的最大 offset + 1），已经提交过的不再返回
+     */
+    public Map<TopicPartition, OffsetAndMetadata> committableOffsets(Collection<TopicPartition> assigned) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (TopicPartition partition : assigned) {
+            PartitionState state = partitions.get(partition);
+            if (state == null) {
+                continue;
+            }
+            synchronized (state) {
+                if (state.committable > state.committed) {
+                    offsets.put(partition, new OffsetAndMetadata(state.committable));
+                }
+            }
+        }
+        return offsets;
+    }
+
+    /**
+     * commitSync 成功后调用，记录已经提交的 offset
+     */
+    public void markCommitted(Map<TopicPartition, OffsetAndMetadata> offsets) {
+        offsets.forEach((partition, offset) -> {
+            PartitionState state = partitions.get(partition);
+            if (state != null) {
+                synchronized (state) {
+                    state.committed = Math.max(state.committed, offset.offset());
+                }
+            }
+        });
+    }
+
+    /**
+     * 等待给定分区中所有已登记的区间处理完成
+     * @return 超时前全部完成返回 true
+     */
+    public boolean awaitCompletion(Collection<TopicPartition> targets, long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        for (TopicPartition partition : targets) {
+            PartitionState state = partitions.get(partition);
+            if (state == null) {
+                continue;
+            }
+            synchronized (state) {
+                while (!state.pending.isEmpty()) {
+                    long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (remainingMs <= 0) {
+                        return false;
+                    }
+                    state.wait(remainingMs);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 分区被回收后丢弃其状态，之后迟到的 complete() 不会再产生可提交的 offset
+     */
+    public void remove(Collection<TopicPartition> targets) {
+        targets.forEach(partitions::remove);
+    }
+
+    /**
+     * 所有分区中尚未完成的区间个数
+     */
+    public int pendingSegments() {
+        int total = 0;
+        for (PartitionState state : partitions.values()) {
+            synchronized (state) {
+                total += state.pending.size();
+            }
+        }
+        return total;
+    }
+
+    private static final class PartitionState {
+        // 按登记顺序排列的未完成区间，队首完成后才向前推进 committable
+        private final ArrayDeque<Segment> pending = new ArrayDeque<>();
+        private long committable = -1;
+        private long committed = -1;
+    }
+
+    public static final class Segment {
+
+        private final PartitionState state;
+        private final long firstOffset;
+        private final long lastOffset;
+        private boolean done;
+
+        private Segment(PartitionState state, long firstOffset, long lastOffset) {
+            this.state = state;
+            this.firstOffset = firstOffset;
+            this.lastOffset = lastOffset;
+        }
+
+        public long firstOffset() {
+            return firstOffset;
+        }
+
+        public long lastOffset() {
+            return lastOffset;
+        }
+
+        /**
+         * 标记该区间处理完成，并把队首连续完成的区间出队
+         */
+        public void complete() {
+            synchronized (state) {
+                done = true;
+                Segment head;
+                while ((head = state.pending.peekFirst()) != null && head.done) {
+                    state.pending.pollFirst();
+                    state.committable = head.lastOffset + 1;
+                }
+                state.notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.zewang.kafkademo.consumer.support;
+
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.listener.adapter.RecordFilterStrategy;
+import org.springframework.stereotype.Component;
+import org.zewang.kafkademo.service.dedup.MessageDeduplicator;
+import org.zewang.kafkademo.util.MessageHeaders;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 只看消息头的去重预过滤：带 messageId 头的记录在进入监听器前抢占去重标记，
+ *               重复的记录直接丢弃，不做 JSON 解析；抢占成功的记录打上 dedupClaimed 头，监听器不再重复抢占。
+ *               没有 messageId 头的记录原样交给监听器，按消息体去重
+ *               抢占的标记要由监听器确认或释放，只能装在 TestMessageConsumer 的主主题工厂上
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/19 04:00
+ */
+
+@Slf4j
+@Component
+public class HeaderDedupFilterStrategy implements RecordFilterStrategy<String, String> {
+
+    private final MessageDeduplicator messageDeduplicator;
+    private final Counter filteredCounter;
+
+    public HeaderDedupFilterStrategy(MessageDeduplicator messageDeduplicator, MeterRegistry meterRegistry) {
+        this.messageDeduplicator = messageDeduplicator;
+        this.filteredCounter = Counter.builder("dedup.header.filtered")
+            .description("按 messageId 头判定为重复、未解析消息体就丢弃的记录数")
+            .register(meterRegistry);
+    }
+
+    /**
+     * @return true 表示丢弃
+     */
+    @Override
+    public boolean filter(ConsumerRecord<String, String> record) {
+        MessageHeaders.clearDedupClaimed(record.headers());
+        String messageId = MessageHeaders.messageId(record.headers());
+        if (messageId == null) {
+            return false;
+        }
+        if (messageDeduplicator.tryMarkProcessed(messageId)) {
+            MessageHeaders.markDedupClaimed(record.headers());
+            return false;
+        }
+        filteredCounter.increment();
+        log.debug("按消息头检测到重复消息，已丢弃: messageId={}, partition={}, offset={}",
+            messageId, record.partition(), record.offset());
+        return true;
+    }
+
+    // 批量监听时整批的 messageId 一次抢占（Redis 后端为一次 pipeline）
+    @Override
+    public List<ConsumerRecord<String, String>> filterBatch(List<ConsumerRecord<String, String>> records) {
+        List<ConsumerRecord<String, String>> withHeader = new ArrayList<>(records.size());
+        List<String> messageIds = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, String> record : records) {
+            MessageHeaders.clearDedupClaimed(record.headers());
+            String messageId = MessageHeaders.messageId(record.headers());
+            if (messageId != null) {
+                withHeader.add(record);
+                messageIds.add(messageId);
+            }
+        }
+        if (withHeader.isEmpty()) {
+            return records;
+        }
+
+        List<Boolean> claimed = messageDeduplicator.tryMarkProcessedBatch(messageIds);
+        List<ConsumerRecord<String, String>> kept = new ArrayList<>(records.size());
+        int next = 0;
+        for (ConsumerRecord<String, String> record : records) {
+            if (next < withHeader.size() && withHeader.get(next) == record) {
+                if (!claimed.get(next++)) {
+                    filteredCounter.increment();
+                    continue;
+                }
+                MessageHeaders.markDedupClaimed(record.headers());
+            }
+            kept.add(record);
+        }
+        return kept;
+    }
+}
@@ -0,0 +1,83 @@
+package org.zewang.kafkademo.consumer.support;
+
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 按 key 保序的并行执行器：同一个 key 的任务串行执行，不同 key 的任务并行执行；
+ *               提交不阻塞，在途任务数由调用方通过 {@link #inFlight()} 控制（例如暂停拉取）
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/19 00:00
+ */
+
+public class KeyOrderedExecutor {
+
+    private final ExecutorService executor;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    // key -> 该 key 最后提交的任务，新任务接在它后面执行；任务完成且没有后继时移除
+    private final ConcurrentMap<Object, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+
+    /**
+     * @param threadName 工作线程名前缀
+     */
+    public KeyOrderedExecutor(String threadName) {
+        // 任务以 I/O 等待为主，每个任务一个虚拟线程，几百个在途任务也不需要对应数量的平台线程
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(threadName, 0).factory());
+    }
+
+    /**
+     * 提交任务，立即返回
+     * @param key 保序的 key，为 null 时不与任何任务排序
+     * @return 任务完成、在途计数已经减一之后完成的 future
+     */
+    public CompletableFuture<Void> submit(Object key, Runnable task) {
+        inFlight.incrementAndGet();
+        CompletableFuture<Void> future;
+        try {
+            if (key == null) {
+                future = CompletableFuture.runAsync(task, executor);
+            } else {
+                // 前一个任务失败也不影响后继执行，失败由任务自己处理
+                future = tails.compute(key, (k, tail) -> tail == null
+                    ? CompletableFuture.runAsync(task, executor)
+                    : tail.exceptionally(e -> null).thenRunAsync(task, executor));
+            }
+        } catch (RuntimeException e) {
+            inFlight.decrementAndGet();
+            throw e;
+        }
+        CompletableFuture<Void> submitted = future;
+        // 返回计数更新之后的阶段：同一个 future 上的回调按注册的逆序执行，
+        // 直接返回 submitted 的话调用方的回调会先于计数减一，看到的在途数偏大
+        return submitted.whenComplete((result, error) -> {
+            inFlight.decrementAndGet();
+            if (key != null) {
+                tails.remove(key, submitted);
+            }
+        });
+    }
+
+    /**
+     * 当前在途的任务数
+     */
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * 停止接收新任务并等待在途任务完成
+     */
+    public void shutdown(long timeoutMs) throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+}
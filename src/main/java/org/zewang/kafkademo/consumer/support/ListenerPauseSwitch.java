@@ -0,0 +1,69 @@
+package org.zewang.kafkademo.consumer.support;
+
+
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 按监听器 id 暂停/恢复监听容器，用于异步处理积压时的背压：暂停后容器继续 poll（不拉取数据、维持心跳），
+ *               不会像阻塞 poll 线程那样超过 max.poll.interval.ms 被踢出消费组。pauseIf/resumeIf 可以在任意线程调用
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/19 05:00
+ */
+
+@Slf4j
+public class ListenerPauseSwitch {
+
+    private final KafkaListenerEndpointRegistry registry;
+    private final String listenerId;
+    // 只在持有 this 锁时修改，与 container.pause()/resume() 一起完成
+    private volatile boolean paused;
+
+    public ListenerPauseSwitch(KafkaListenerEndpointRegistry registry, String listenerId) {
+        this.registry = registry;
+        this.listenerId = listenerId;
+    }
+
+    /**
+     * 条件成立时请求暂停容器，在当前监听器调用返回后、下一次 poll 之前生效；已暂停时不重复请求。
+     * 条件在锁内判断，与 {@link #resumeIf} 互斥：调用方先更新积压计数再调用这两个方法，
+     * 就不会出现恢复线程看到"未暂停"而跳过、随后容器又被暂停、再没有人恢复的情况
+     * @param reason 暂停原因，只在真正暂停时生成，用于日志
+     */
+    public synchronized void pauseIf(BooleanSupplier condition, Supplier<String> reason) {
+        if (paused || !condition.getAsBoolean()) {
+            return;
+        }
+        MessageListenerContainer container = registry.getListenerContainer(listenerId);
+        if (container != null) {
+            container.pause();
+        }
+        paused = true;
+        log.warn("监听容器已暂停拉取: listenerId={}, 原因: {}", listenerId, reason.get());
+    }
+
+    /**
+     * 已暂停且条件成立时恢复拉取；未暂停时不判断条件直接返回。
+     * 不能在锁外先读 paused 走捷径：读到 false 之后暂停才生效的话，这次恢复检查就丢了
+     */
+    public synchronized void resumeIf(BooleanSupplier condition) {
+        if (!paused || !condition.getAsBoolean()) {
+            return;
+        }
+        MessageListenerContainer container = registry.getListenerContainer(listenerId);
+        if (container != null) {
+            container.resume();
+        }
+        paused = false;
+        log.info("监听容器已恢复拉取: listenerId={}", listenerId);
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+}
@@ -0,0 +1,43 @@
+package org.zewang.kafkademo.consumer.support;
+
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.stereotype.Component;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 重试主题的流量指标：按阶段（retry-0、retry-1 ...、dlt）统计进入各个重试主题和死信主题的记录数
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/19 00:30
+ */
+
+@Component
+@RequiredArgsConstructor
+public class RetryTopicMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一次投递。主主题上的投递不计数，重试主题和死信主题按后缀区分阶段
+     * @param mainTopic 主主题名，重试主题名为 mainTopic + "-retry-n"，死信主题为 mainTopic + "-dlt"
+     */
+    public void recordDelivery(String mainTopic, ConsumerRecord<?, ?> record) {
+        String topic = record.topic();
+        if (topic.equals(mainTopic) || !topic.startsWith(mainTopic + "-")) {
+            return;
+        }
+        String stage = topic.substring(mainTopic.length() + 1);
+        counters.computeIfAbsent(topic, t -> Counter.builder("kafka.retry.topic.records")
+                .description("进入各重试阶段和死信主题的记录数")
+                .tags("topic", mainTopic, "stage", stage)
+                .register(meterRegistry))
+            .increment();
+    }
+}
@@ -0,0 +1,69 @@
+package org.zewang.kafkademo.controller;
+
+
+import java.time.LocalDateTime;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.zewang.kafkademo.service.log.LogQueryService;
+import org.zewang.kafkademo.service.log.LogQueryService.Criteria;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 访问日志查询接口，支持时间范围、状态码、路径前缀和 IP 过滤，使用游标分页
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/18 21:00
+ */
+
+@Slf4j
+@RestController
+@RequestMapping("/api/logs")
+@RequiredArgsConstructor
+public class LogQueryController {
+
+    private final LogQueryService logQueryService;
+
+    /**
+     * 按条件查询日志，结果按时间倒序排列
+     * 示例：GET /api/logs?from=2026-10-18T00:00:00&statusCode=500&limit=200
+     * 翻页时把上一页返回的 nextCursor 原样作为 cursor 传入，nextCursor 为 null 表示没有更多数据
+     * @param from 开始时间（包含）
+     * @param to 结束时间（不包含）
+     * @param statusCode HTTP 状态码
+     * @param pathPrefix 请求路径前缀
+     * @param ip 客户端 IP
+     * @param cursor 分页游标
+     * @param limit 每页条数，最大 5000
+     * @param includeRaw 是否返回日志原文
+     */
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> query(
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+        @RequestParam(required = false) Integer statusCode,
+        @RequestParam(required = false) String pathPrefix,
+        @RequestParam(required = false) String ip,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(defaultValue = "" + LogQueryService.DEFAULT_LIMIT) int limit,
+        @RequestParam(defaultValue = "false") boolean includeRaw) {
+        Criteria criteria = new Criteria(from, to, statusCode, pathPrefix, ip, cursor, limit, includeRaw);
+        try {
+            logQueryService.validate(criteria);
+        } catch (IllegalArgumentException e) {
+            log.warn("日志查询参数错误: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+
+        log.info("查询日志: {}", criteria);
+        StreamingResponseBody body = out -> logQueryService.stream(criteria, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+}
@@ -0,0 +1,46 @@
+package org.zewang.kafkademo.controller;
+
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.zewang.kafkademo.service.log.LogRollupStore;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 访问日志汇总查询接口，数据来自 web_log_rollups 汇总表
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/18 17:00
+ */
+
+@Slf4j
+@RestController
+@RequestMapping("/api/logs/rollups")
+@RequiredArgsConstructor
+public class LogRollupController {
+
+    private final LogRollupStore logRollupStore;
+
+    /**
+     * 查询时间范围内的请求数和响应时间分位数
+     * @param path 请求路径（不含查询参数），不传时汇总所有路径
+     * @param from 开始时间（包含），ISO 格式，例如 2026-10-18T10:00:00
+     * @param to 结束时间（不包含）
+     * @return 按状态码类别分组的汇总结果
+     */
+    @GetMapping
+    public Map<String, Object> summarize(
+        @RequestParam(required = false) String path,
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        log.info("查询日志汇总: path={}, from={}, to={}", path, from, to);
+        return logRollupStore.summarize(path, from, to);
+    }
+}
@@ -16,6 +16,11 @@ import org.springframework.web.bind.annotation.RestController;
 import org.zewang.kafkademo.service.KafkaMetricsService;
 import org.zewang.kafkademo.service.PerformanceTestService;
 import org.zewang.kafkademo.service.admin.TopicManagementService;
+import org.zewang.kafkademo.service.benchmark.DedupBackendBenchmarkService;
+import org.zewang.kafkademo.service.benchmark.ExactlyOnceBenchmarkService;
+import org.zewang.kafkademo.service.benchmark.LogParserBenchmarkService;
+import org.zewang.kafkademo.service.benchmark.RecordCompressionBenchmarkService;
+import org.zewang.kafkademo.service.benchmark.TestMessageSerdeBenchmarkService;
 
 // PerformanceTestController.java
 @RestController
@@ -27,11 +32,20 @@ public class PerformanceTestController {
     private final KafkaMetricsService kafkaMetricsService;
     private final PerformanceTestService performanceTestService;
     private final TopicManagementService topicManagementService;
+    private final LogParserBenchmarkService logParserBenchmarkService;
+    private final ExactlyOnceBenchmarkService exactlyOnceBenchmarkService;
+    private final DedupBackendBenchmarkService dedupBackendBenchmarkService;
+    private final TestMessageSerdeBenchmarkService testMessageSerdeBenchmarkService;
+    private final RecordCompressionBenchmarkService recordCompressionBenchmarkService;
 
     @Autowired
     @Qualifier("optimizedKafkaTemplate")
     private KafkaTemplate<String, String> optimizedKafkaTemplate;
 
+    @Autowired
+    @Qualifier("zstdDictKafkaTemplate")
+    private KafkaTemplate<String, String> zstdDictKafkaTemplate;
+
     @Autowired
     @Qualifier("kafkaTemplateAcks0")
     private KafkaTemplate<String, String> kafkaTemplateAcks0;
@@ -82,6 +96,65 @@ public class PerformanceTestController {
         return ResponseEntity.ok(result);
     }
 
+    // 访问日志解析基准测试：正则解析 vs 单遍扫描解析
+    @PostMapping("/log-parser")
+    public ResponseEntity<Map<String, Object>> runLogParserBenchmark(
+        @RequestParam(defaultValue = "10000") int lineCount,
+        @RequestParam(defaultValue = "20") int iterations) {
+        if (lineCount < 1 || iterations < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(logParserBenchmarkService.run(lineCount, iterations));
+    }
+
+    // 消费-转换-生产基准测试：Redis 去重 + 手动提交 vs Kafka 事务
+    @PostMapping("/exactly-once")
+    public ResponseEntity<Map<String, Object>> runExactlyOnceBenchmark(
+        @RequestParam(defaultValue = "10000") int messageCount,
+        @RequestParam(defaultValue = "500") int maxPollRecords) {
+        if (messageCount < 1 || maxPollRecords < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!exactlyOnceBenchmarkService.isRedisDedupAvailable()) {
+            log.warn("拒绝 exactly-once 基准测试请求: 当前去重后端不是 redis");
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(exactlyOnceBenchmarkService.run(messageCount, maxPollRecords));
+    }
+
+    // 去重后端基准测试：Redis vs 纯内存 vs mmap 文件
+    @PostMapping("/dedup-backends")
+    public ResponseEntity<Map<String, Object>> runDedupBackendBenchmark(
+        @RequestParam(defaultValue = "1000000") int idCount) {
+        if (idCount < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(dedupBackendBenchmarkService.run(idCount));
+    }
+
+    // TestMessage 序列化基准测试：JSON vs 紧凑二进制
+    @PostMapping("/serde")
+    public ResponseEntity<Map<String, Object>> runSerdeBenchmark(
+        @RequestParam(defaultValue = "10000") int recordCount,
+        @RequestParam(defaultValue = "20") int iterations) {
+        if (recordCount < 1 || iterations < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(testMessageSerdeBenchmarkService.run(recordCount, iterations));
+    }
+
+    // 逐条 zstd 字典压缩基准测试：网络字节数和 CPU 耗时 vs 只用批次压缩
+    @PostMapping("/record-compression")
+    public ResponseEntity<Map<String, Object>> runRecordCompressionBenchmark(
+        @RequestParam(defaultValue = "20000") int recordCount,
+        @RequestParam(defaultValue = "16384") int dictionarySize) {
+        // 样本一半用于训练，训练样本太少时 zstd 无法生成字典
+        if (recordCount < 2000 || dictionarySize < 1024) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(recordCompressionBenchmarkService.run(recordCount, dictionarySize));
+    }
+
     private KafkaTemplate<String, String> getKafkaTemplate(String templateType) {
         switch (templateType) {
             case "acks0":
@@ -90,6 +163,8 @@ public class PerformanceTestController {
                 return kafkaTemplateAcks1;
             case "acksAll":
                 return kafkaTemplateAcksAll;
+            case "zstdDict":
+                return zstdDictKafkaTemplate;
             case "optimized":
             default:
                 return optimizedKafkaTemplate;
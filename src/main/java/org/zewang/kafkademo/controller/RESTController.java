@@ -3,10 +3,13 @@ package org.zewang.kafkademo.controller;
 
 import java.util.UUID;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.ResponseEntity;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -17,6 +20,8 @@ import org.zewang.kafkademo.dto.rest.CreateTopicRequest;
 import org.zewang.kafkademo.dto.rest.KafkaMessageRequest;
 import org.zewang.kafkademo.service.KafkaMessageService;
 import org.zewang.kafkademo.service.RedisDedupService;
+import org.zewang.kafkademo.service.RedisKeyCleanupService;
+import org.zewang.kafkademo.service.RedisKeyCleanupService.CleanupTask;
 import org.zewang.kafkademo.service.admin.TopicManagementService;
 
 /**
@@ -37,7 +42,9 @@ public class RESTController {
     @Autowired
     private TopicManagementService topicManagementService;
     @Autowired
-    private RedisDedupService redisDedupService;
+    private ObjectProvider<RedisDedupService> redisDedupService; // 只在 redis 去重后端下存在
+    @Autowired
+    private RedisKeyCleanupService redisKeyCleanupService;
 
     @Autowired
     @Qualifier("optimizedKafkaTemplate")
@@ -146,10 +153,31 @@ public class RESTController {
         return true;
     }
 
+    // 按前缀清理 Redis，不传 redisKey 时清理去重数据；清理在后台进行，返回任务进度
     @PostMapping("/redis/clean")
-    public String cleanRedis(@RequestParam String redisKey) {
-        redisDedupService.clearAll();
-        return "Redis 数据清理完成";
+    public ResponseEntity<CleanupTask> cleanRedis(@RequestParam(required = false) String redisKey) {
+        if (redisKey == null) {
+            RedisDedupService dedupService = redisDedupService.getIfAvailable();
+            if (dedupService == null) {
+                log.warn("拒绝 Redis 清理请求: 当前去重后端不是 redis");
+                return ResponseEntity.badRequest().build();
+            }
+            return ResponseEntity.accepted().body(dedupService.clearAll());
+        }
+        try {
+            return ResponseEntity.accepted().body(redisKeyCleanupService.start(redisKey));
+        } catch (IllegalArgumentException e) {
+            log.warn("拒绝 Redis 清理请求: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // 查询 Redis 清理任务的进度
+    @GetMapping("/redis/clean/{taskId}")
+    public ResponseEntity<CleanupTask> getCleanTask(@PathVariable String taskId) {
+        return redisKeyCleanupService.getTask(taskId)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
     }
 
     // 性能测试
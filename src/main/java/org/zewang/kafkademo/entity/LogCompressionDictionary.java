@@ -0,0 +1,36 @@
+package org.zewang.kafkademo.entity;
+
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 日志原文压缩字典，按 zstd 字典 ID 保存；压缩数据的帧头记录了字典 ID，字典只增不删
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/19 05:30
+ */
+
+@Entity
+@Table(name = "web_log_dictionaries")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LogCompressionDictionary {
+
+    @Id
+    private Integer dictId; // zstd 字典 ID
+
+    @Column(nullable = false, columnDefinition = "MEDIUMBLOB")
+    private byte[] content;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -6,12 +6,16 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import jakarta.persistence.UniqueConstraint;
 import java.time.LocalDateTime;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
 
 /**
  * @author "Zewang"
@@ -26,12 +30,23 @@ import lombok.NoArgsConstructor;
 @Table(name = "web_log_entries",
 uniqueConstraints = {
     @UniqueConstraint(columnNames = {"idAddress", "timestamp", "method", "path"})
+},
+indexes = {
+    // 查询接口按 (timestamp, id) 做 keyset 分页，每个过滤条件的索引都以 timestamp, id 结尾
+    @Index(name = "idx_log_time", columnList = "timestamp, id"),
+    @Index(name = "idx_log_status_time", columnList = "statusCode, timestamp, id"),
+    @Index(name = "idx_log_ip_time", columnList = "idAddress, timestamp, id"),
+    @Index(name = "idx_log_path_time", columnList = "pathKey, timestamp, id")
 })
+@Immutable // 日志只追加不修改；@PostLoad 还原原文后不会被脏检查写回
 @Data
 @NoArgsConstructor // 自动生成无参构造函数
 @AllArgsConstructor // 自动生成全参构造函数
 public class LogEntry {
 
+    // utf8mb4 下 InnoDB 单列索引最长 767 字节，即 191 个字符
+    public static final int PATH_KEY_LENGTH = 191;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -48,6 +63,9 @@ public class LogEntry {
     @Column(columnDefinition = "TEXT")
     private String path; // 请求路径（URL）
 
+    @Column(length = PATH_KEY_LENGTH)
+    private String pathKey; // path 的前 191 个字符，TEXT 列无法直接建索引，路径前缀查询走这一列
+
     private int statusCode; // HTTP 状态码
 
     private long responseTimeMs; // 响应时间（毫秒）
@@ -56,7 +74,38 @@ public class LogEntry {
     private String userAgent; // 用户代理
 
     @Column(columnDefinition = "TEXT")
-    private String originalMessage; // 原始的、未解析的Kafka消息体
+    private String originalMessage; // 原始的、未解析的Kafka消息体，按存储策略可能为空
+
+    @Column(columnDefinition = "VARBINARY(4096)")
+    private byte[] originalMessageCompressed; // 压缩后的原始消息，与 originalMessage 至多有一个非空；由查询层（LogQueryService）解压
+
+    @Transient
+    private boolean partiallyParsed; // 解析时有字段回退到默认值（例如时间戳解析失败），这类日志总是保留原文
+
+    @Transient
+    private boolean unparsed; // 整行无法解析，只保存原文和接收时间，不参与预过滤去重和汇总
 
     // 字段的解析和结构化逻辑在 Consumer Service 中实现
+
+    /**
+     * 无法解析的日志行：IP、方法、路径均为空，唯一约束不会对它们生效，重复投递时可能保存多份
+     * @param receivedAt 接收时间（Kafka 记录时间戳）
+     */
+    public static LogEntry unparsed(String rawLogMessage, LocalDateTime receivedAt) {
+        LogEntry entry = new LogEntry();
+        entry.setTimestamp(receivedAt);
+        entry.setOriginalMessage(rawLogMessage);
+        entry.setPartiallyParsed(true);
+        entry.setUnparsed(true);
+        return entry;
+    }
+
+    public static String pathKeyOf(String path) {
+        return path == null || path.length() <= PATH_KEY_LENGTH ? path : path.substring(0, PATH_KEY_LENGTH);
+    }
+
+    @PrePersist
+    void fillPathKey() {
+        pathKey = pathKeyOf(path);
+    }
 }
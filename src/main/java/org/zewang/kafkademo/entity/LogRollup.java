@@ -0,0 +1,64 @@
+package org.zewang.kafkademo.entity;
+
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 访问日志按 (分钟, 路径, 状态码类别) 聚合后的汇总表，分析查询不再扫描 web_log_entries
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/18 17:00
+ */
+
+@Entity
+@Table(name = "web_log_rollups",
+uniqueConstraints = {
+    @UniqueConstraint(columnNames = {"bucketMinute", "path", "statusClass"})
+},
+indexes = {
+    @Index(name = "idx_rollup_path_minute", columnList = "path, bucketMinute")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LogRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDateTime bucketMinute; // 所在分钟（秒和纳秒截断为 0）
+
+    @Column(nullable = false, length = 191)
+    private String path; // 去掉查询参数后的请求路径，utf8mb4 下唯一索引最长 191 个字符
+
+    private int statusClass; // 状态码类别，2 表示 2xx
+
+    private long requestCount; // 请求数
+
+    private long latencySumMs; // 响应时间总和，用于计算平均值
+
+    private long latencyMaxMs; // 最大响应时间
+
+    private long p50Ms;
+
+    private long p95Ms;
+
+    private long p99Ms;
+
+    @Column(columnDefinition = "BLOB")
+    private byte[] latencySketch; // LatencySketch 序列化结果，跨分钟合并时重新计算分位数
+}
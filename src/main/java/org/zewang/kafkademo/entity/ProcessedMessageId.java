@@ -0,0 +1,39 @@
+package org.zewang.kafkademo.entity;
+
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: bloom 去重后端确认处理成功的消息 ID，布隆过滤器判定"可能存在"时到这里精确确认；
+ *               由 BloomDedupService 通过 JdbcTemplate 读写，超出去重窗口的记录在时间桶轮换时删除
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/19 06:00
+ */
+
+@Entity
+@Table(name = "dedup_processed_ids",
+indexes = {
+    @Index(name = "idx_dedup_processed_at", columnList = "processedAt")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProcessedMessageId {
+
+    @Id
+    @Column(length = 191)
+    private String messageId; // 去重 ID，与调用 confirmProcessed 时的参数一致（可能带调用方的前缀）
+
+    @Column(nullable = false)
+    private LocalDateTime processedAt;
+}
@@ -6,10 +6,12 @@ import java.util.UUID;
 import java.util.concurrent.ThreadLocalRandom;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.zewang.kafkademo.entity.TestMessage;
+import org.zewang.kafkademo.util.MessageHeaders;
 
 /**
  * @author "Zewang"
@@ -45,7 +47,10 @@ public class CustomSerializerProducer {
             testMessage.setProcessCount(0);
 
             // 发送对象
-            customKafkaTemplate.send(TOPIC, "key-" + messageCounter, testMessage)
+            ProducerRecord<String, TestMessage> record =
+                new ProducerRecord<>(TOPIC, "key-" + messageCounter, testMessage);
+            MessageHeaders.stamp(record.headers(), testMessage.getMessageId());
+            customKafkaTemplate.send(record)
                 .whenComplete((result, ex) -> {
                     if (ex == null) {
                         log.info("成功发送TestMessage到主题 '{}': messageId={}",
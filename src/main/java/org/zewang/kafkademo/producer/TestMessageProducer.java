@@ -3,10 +3,12 @@ package org.zewang.kafkademo.producer;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.zewang.kafkademo.util.MessageHeaders;
 import java.util.UUID;
 import java.util.concurrent.ThreadLocalRandom;
 
@@ -50,7 +52,11 @@ public class TestMessageProducer {
                 messageId, content, key
             );
 
-            kafkaTemplate.send(TOPIC, key, message)
+            // messageId 同时写入消息头，消费者不解析 JSON 就能去重
+            ProducerRecord<String, String> record = new ProducerRecord<>(TOPIC, key, message);
+            MessageHeaders.stamp(record.headers(), messageId);
+
+            kafkaTemplate.send(record)
                 .whenComplete((result, ex) -> {
                     if (ex == null) {
                         log.info("成功发送测试消息到主题 '{}': messageId={}, key={}", TOPIC, messageId, key);
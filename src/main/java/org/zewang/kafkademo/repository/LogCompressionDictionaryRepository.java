@@ -0,0 +1,19 @@
+package org.zewang.kafkademo.repository;
+
+
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import org.zewang.kafkademo.entity.LogCompressionDictionary;
+
+/**
+ * LogCompressionDictionaryRepository
+ * 负责日志原文压缩字典的持久化。
+ */
+
+@Repository
+public interface LogCompressionDictionaryRepository extends JpaRepository<LogCompressionDictionary, Integer> {
+
+    // 最新训练的字典用于压缩
+    Optional<LogCompressionDictionary> findTopByOrderByCreatedAtDesc();
+}
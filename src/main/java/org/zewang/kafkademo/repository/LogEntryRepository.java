@@ -11,10 +11,11 @@ import org.zewang.kafkademo.entity.LogEntry;
  * 负责 LogEntry 实体类（对应数据库表）的持久化操作。
  * 继承 JpaRepository 接口，T 为实体类 LogEntry，ID 为主键类型 Long。
  * Spring Data JPA 会自动实现基本的 CRUD 方法，例如 save(), findAll() 等。
+ * 批量写入等 JDBC 操作在 LogEntryRepositoryCustom 中定义，由 LogEntryRepositoryImpl 实现。
  */
 
 @Repository
-public interface LogEntryRepository extends JpaRepository<LogEntry, Long> {
+public interface LogEntryRepository extends JpaRepository<LogEntry, Long>, LogEntryRepositoryCustom {
     // 我们可以根据需要在这里添加自定义的查询方法，例如：
     // List<LogEntry> findByStatusCode(int statusCode);
     // LogEntry findTopByOrderByTimestampDesc();
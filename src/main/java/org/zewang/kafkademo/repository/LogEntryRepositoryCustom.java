@@ -0,0 +1,33 @@
+package org.zewang.kafkademo.repository;
+
+
+import java.util.List;
+import org.zewang.kafkademo.entity.LogEntry;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: LogEntryRepository 的自定义扩展，提供绕开 Hibernate 的 JDBC 批量写入
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/18 10:00
+ */
+
+public interface LogEntryRepositoryCustom {
+
+    /**
+     * 使用 JDBC 批量插入日志记录。
+     * LogEntry 的主键是 IDENTITY 自增，Hibernate 无法对其做批量插入，
+     * 这里直接交给 MySQL 自增列生成主键，调用方不需要拿回生成的 ID。
+     * @param entries 待插入的日志记录
+     * @return 实际插入的行数（违反唯一约束的重复记录会被跳过）
+     */
+    int batchInsert(List<LogEntry> entries);
+
+    /**
+     * 使用多行 INSERT ... ON DUPLICATE KEY UPDATE id = id 批量写入，与唯一约束 (idAddress, timestamp, method, path)
+     * 冲突的行保持原样，重复投递不会再让整个事务失败；与 INSERT IGNORE 不同，字段超长等其他错误仍会正常抛出。
+     * @param entries 待插入的日志记录
+     * @return 实际插入的行数，entries.size() 减去返回值即为数据库判定的重复行数
+     */
+    int insertIgnoringDuplicates(List<LogEntry> entries);
+}
@@ -0,0 +1,122 @@
+package org.zewang.kafkademo.repository;
+
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import org.zewang.kafkademo.entity.LogEntry;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: LogEntryRepositoryCustom 的 JDBC 实现，由 Spring Data 自动拼接到 LogEntryRepository 上
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/18 10:00
+ */
+
+@Slf4j
+@RequiredArgsConstructor
+public class LogEntryRepositoryImpl implements LogEntryRepositoryCustom {
+
+    // 列名与 Spring Boot 默认的命名策略（驼峰转下划线）保持一致
+    private static final String COLUMNS =
+        "(timestamp, id_address, method, path, status_code, response_time_ms, user_agent, original_message,"
+            + " original_message_compressed, path_key)";
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int COLUMN_COUNT = 10;
+
+    private static final String INSERT_SQL =
+        "INSERT INTO web_log_entries " + COLUMNS + " VALUES " + ROW_PLACEHOLDERS;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // 单条 batch 语句包含的最大行数，配合 rewriteBatchedStatements=true 被驱动改写为多行 INSERT
+    @Value("${kafka.log-consumer.jdbc-batch-size:500}")
+    private int jdbcBatchSize;
+
+    @Override
+    @Transactional
+    public int batchInsert(List<LogEntry> entries) {
+        int inserted = 0;
+        for (int from = 0; from < entries.size(); from += jdbcBatchSize) {
+            List<LogEntry> chunk = entries.subList(from, Math.min(from + jdbcBatchSize, entries.size()));
+            try {
+                jdbcTemplate.batchUpdate(INSERT_SQL, chunk, chunk.size(), this::bindEntry);
+                inserted += chunk.size();
+            } catch (DuplicateKeyException e) {
+                // 多行 INSERT 中只要有一行重复，整条语句都会失败；逐行重试以跳过重复记录
+                log.warn("批量插入遇到重复日志，改为逐行插入: chunkSize={}", chunk.size());
+                inserted += insertSkippingDuplicates(chunk);
+            }
+        }
+        return inserted;
+    }
+
+    @Override
+    @Transactional
+    public int insertIgnoringDuplicates(List<LogEntry> entries) {
+        int inserted = 0;
+        for (int from = 0; from < entries.size(); from += jdbcBatchSize) {
+            List<LogEntry> chunk = entries.subList(from, Math.min(from + jdbcBatchSize, entries.size()));
+            // 自己拼接多行语句而不是依赖驱动改写，这样返回的影响行数就是实际插入的行数；
+            // 重复行的 id = id 不改变任何值，在 useAffectedRows=true 下计 0
+            inserted += jdbcTemplate.update(buildInsertOnDuplicateSql(chunk.size()), ps -> {
+                for (int i = 0; i < chunk.size(); i++) {
+                    bindEntry(ps, chunk.get(i), i * COLUMN_COUNT);
+                }
+            });
+        }
+        return inserted;
+    }
+
+    private static String buildInsertOnDuplicateSql(int rows) {
+        StringBuilder sql = new StringBuilder(96 + rows * (ROW_PLACEHOLDERS.length() + 2))
+            .append("INSERT INTO web_log_entries ").append(COLUMNS).append(" VALUES ");
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW_PLACEHOLDERS);
+        }
+        return sql.append(" ON DUPLICATE KEY UPDATE id = id").toString();
+    }
+
+    private int insertSkippingDuplicates(List<LogEntry> chunk) {
+        int inserted = 0;
+        for (LogEntry entry : chunk) {
+            try {
+                jdbcTemplate.update(INSERT_SQL, ps -> bindEntry(ps, entry));
+                inserted++;
+            } catch (DuplicateKeyException e) {
+                log.debug("跳过重复日志: ip={}, timestamp={}, path={}",
+                    entry.getIdAddress(), entry.getTimestamp(), entry.getPath());
+            }
+        }
+        return inserted;
+    }
+
+    private void bindEntry(PreparedStatement ps, LogEntry entry) throws SQLException {
+        bindEntry(ps, entry, 0);
+    }
+
+    // offset 为该行第一个参数之前已经绑定的参数个数
+    private void bindEntry(PreparedStatement ps, LogEntry entry, int offset) throws SQLException {
+        ps.setTimestamp(offset + 1, Timestamp.valueOf(entry.getTimestamp()));
+        ps.setString(offset + 2, entry.getIdAddress());
+        ps.setString(offset + 3, entry.getMethod());
+        ps.setString(offset + 4, entry.getPath());
+        ps.setInt(offset + 5, entry.getStatusCode());
+        ps.setLong(offset + 6, entry.getResponseTimeMs());
+        ps.setString(offset + 7, entry.getUserAgent());
+        ps.setString(offset + 8, entry.getOriginalMessage());
+        ps.setBytes(offset + 9, entry.getOriginalMessageCompressed());
+        ps.setString(offset + 10, LogEntry.pathKeyOf(entry.getPath()));
+    }
+}
@@ -0,0 +1,44 @@
+package org.zewang.kafkademo.repository;
+
+
+import jakarta.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.zewang.kafkademo.entity.LogRollup;
+
+/**
+ * LogRollupRepository
+ * 负责 LogRollup 汇总表的持久化和按时间范围查询。
+ */
+
+@Repository
+public interface LogRollupRepository extends JpaRepository<LogRollup, Long> {
+
+    // SELECT ... FOR UPDATE，多个实例合并同一行时串行执行读-改-写
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<LogRollup> findForUpdateByBucketMinuteAndPathAndStatusClass(LocalDateTime bucketMinute, String path,
+        int statusClass);
+
+    // 行不存在时插入一行空汇总，并发插入同一个键时由唯一约束忽略，不会让整个事务失败
+    // 列名与 Spring Boot 默认的命名策略（驼峰转下划线）保持一致
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO web_log_rollups (bucket_minute, path, status_class, request_count,"
+        + " latency_sum_ms, latency_max_ms, p50ms, p95ms, p99ms)"
+        + " VALUES (:bucketMinute, :path, :statusClass, 0, 0, 0, 0, 0, 0)", nativeQuery = true)
+    int insertEmptyIfAbsent(@Param("bucketMinute") LocalDateTime bucketMinute, @Param("path") String path,
+        @Param("statusClass") int statusClass);
+
+    // 区间为 [from, to)
+    List<LogRollup> findByBucketMinuteGreaterThanEqualAndBucketMinuteLessThan(LocalDateTime from,
+        LocalDateTime to);
+
+    List<LogRollup> findByPathAndBucketMinuteGreaterThanEqualAndBucketMinuteLessThan(String path,
+        LocalDateTime from, LocalDateTime to);
+}
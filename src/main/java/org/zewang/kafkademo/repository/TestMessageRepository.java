@@ -14,7 +14,7 @@ import java.util.Optional;
  * @date 2025/11/1 10:05
  */
 @Repository
-public interface TestMessageRepository extends JpaRepository<TestMessage, Long> {
+public interface TestMessageRepository extends JpaRepository<TestMessage, Long>, TestMessageRepositoryCustom {
 
     /**
      * 根据消息ID查找消息
@@ -0,0 +1,32 @@
+package org.zewang.kafkademo.repository;
+
+
+import java.util.List;
+import org.zewang.kafkademo.entity.TestMessage;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: TestMessageRepository 的自定义扩展，提供多行 upsert 写入
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/19 01:00
+ */
+
+public interface TestMessageRepositoryCustom {
+
+    /**
+     * upsert 的结果
+     * @param inserted 新插入的行数
+     * @param updated 因 messageId 已存在而只增加了 processCount 的行数
+     */
+    record UpsertResult(int inserted, int updated) {
+    }
+
+    /**
+     * 使用多行 INSERT ... ON DUPLICATE KEY UPDATE 批量写入消息，messageId 已存在的行只把 processCount 加一，
+     * 重复消息不会违反唯一约束，也不会让整个事务失败。
+     * @param messages 待写入的消息
+     * @return 插入和更新的行数
+     */
+    UpsertResult upsertAll(List<TestMessage> messages);
+}
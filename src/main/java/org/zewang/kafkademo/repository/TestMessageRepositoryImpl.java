@@ -0,0 +1,74 @@
+package org.zewang.kafkademo.repository;
+
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import org.zewang.kafkademo.entity.TestMessage;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: TestMessageRepositoryCustom 的 JDBC 实现，由 Spring Data 自动拼接到 TestMessageRepository 上
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/19 01:00
+ */
+
+@RequiredArgsConstructor
+public class TestMessageRepositoryImpl implements TestMessageRepositoryCustom {
+
+    // 列名与 Spring Boot 默认的命名策略（驼峰转下划线）保持一致
+    private static final String COLUMNS = "(message_id, content, sender, received_time, status, process_count)";
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?)";
+    private static final int COLUMN_COUNT = 6;
+    // 单条语句包含的最大行数，避免语句超过 max_allowed_packet
+    private static final int MAX_ROWS_PER_STATEMENT = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    @Transactional
+    public UpsertResult upsertAll(List<TestMessage> messages) {
+        int inserted = 0;
+        int updated = 0;
+        for (int from = 0; from < messages.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<TestMessage> chunk = messages.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, messages.size()));
+            int affected = jdbcTemplate.update(buildUpsertSql(chunk.size()), ps -> {
+                for (int i = 0; i < chunk.size(); i++) {
+                    bindMessage(ps, chunk.get(i), i * COLUMN_COUNT);
+                }
+            });
+            // MySQL 对插入的行计 1，对更新的行计 2；processCount 每次都会变化，不存在计 0 的情况
+            int chunkUpdated = affected - chunk.size();
+            updated += chunkUpdated;
+            inserted += chunk.size() - chunkUpdated;
+        }
+        return new UpsertResult(inserted, updated);
+    }
+
+    private static String buildUpsertSql(int rows) {
+        StringBuilder sql = new StringBuilder(128 + rows * (ROW_PLACEHOLDERS.length() + 2))
+            .append("INSERT INTO test_messages ").append(COLUMNS).append(" VALUES ");
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW_PLACEHOLDERS);
+        }
+        return sql.append(" ON DUPLICATE KEY UPDATE process_count = process_count + 1").toString();
+    }
+
+    // offset 为该行第一个参数之前已经绑定的参数个数
+    private void bindMessage(PreparedStatement ps, TestMessage message, int offset) throws SQLException {
+        ps.setString(offset + 1, message.getMessageId());
+        ps.setString(offset + 2, message.getContent());
+        ps.setString(offset + 3, message.getSender());
+        ps.setTimestamp(offset + 4, Timestamp.valueOf(message.getReceivedTime()));
+        ps.setString(offset + 5, message.getStatus());
+        ps.setInt(offset + 6, message.getProcessCount() != null ? message.getProcessCount() : 1);
+    }
+}
@@ -0,0 +1,190 @@
+package org.zewang.kafkademo.service;
+
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Service;
+import org.zewang.kafkademo.consumer.support.ContiguousOffsetTracker;
+import org.zewang.kafkademo.consumer.support.ContiguousOffsetTracker.Segment;
+import org.zewang.kafkademo.consumer.support.KeyOrderedExecutor;
+import org.zewang.kafkademo.consumer.support.ListenerPauseSwitch;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 分区内并行处理：poll 批次中的记录按 key 分派并发处理，同一 key 保持 offset 顺序；
+ *               每个分区只提交连续处理完成的最大 offset，吞吐不再受分区数限制
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/19 00:00
+ */
+
+@Slf4j
+@Service
+public class ParallelMessageProcessor implements ConsumerAwareRebalanceListener {
+
+    // 与 @KafkaListener 的 id 保持一致，用于过滤空闲事件
+    public static final String LISTENER_ID = "test-messages-parallel";
+
+    /**
+     * 单条记录的处理逻辑，抛出异常表示需要重试
+     */
+    @FunctionalInterface
+    public interface RecordHandler {
+
+        void handle(ConsumerRecord<String, String> record) throws Exception;
+    }
+
+    private final ContiguousOffsetTracker offsetTracker = new ContiguousOffsetTracker();
+    private final KeyOrderedExecutor executor;
+    private final ListenerPauseSwitch pauseSwitch;
+    private final Counter failedCounter;
+
+    private final int maxInFlight;
+    private final int maxAttempts;
+    private final long backoffMs;
+    private final long revokeTimeoutMs;
+
+    public ParallelMessageProcessor(MeterRegistry meterRegistry,
+        KafkaListenerEndpointRegistry listenerEndpointRegistry,
+        @Value("${kafka.parallel-consumer.max-in-flight:256}") int maxInFlight,
+        @Value("${kafka.parallel-consumer.max-attempts:3}") int maxAttempts,
+        @Value("${kafka.parallel-consumer.backoff-ms:500}") long backoffMs,
+        @Value("${kafka.parallel-consumer.revoke-timeout-ms:30000}") long revokeTimeoutMs) {
+        this.executor = new KeyOrderedExecutor("test-messages-parallel-");
+        this.pauseSwitch = new ListenerPauseSwitch(listenerEndpointRegistry, LISTENER_ID);
+        this.maxInFlight = maxInFlight;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMs = backoffMs;
+        this.revokeTimeoutMs = revokeTimeoutMs;
+
+        Gauge.builder("test.messages.parallel.in.flight", executor, KeyOrderedExecutor::inFlight)
+            .description("并行处理中尚未完成的记录数")
+            .register(meterRegistry);
+        Gauge.builder("test.messages.parallel.pending.offsets", offsetTracker, ContiguousOffsetTracker::pendingSegments)
+            .description("offset 还不能提交的记录数（自身或之前的记录尚未完成）")
+            .register(meterRegistry);
+        this.failedCounter = Counter.builder("test.messages.parallel.failed")
+            .description("重试次数用尽后被跳过的记录数")
+            .register(meterRegistry);
+        log.info("并行消息处理已启用: maxInFlight={}, maxAttempts={}", maxInFlight, this.maxAttempts);
+    }
+
+    /**
+     * 分派一个 poll 批次，不阻塞调用线程。在途记录数达到 max-in-flight 时暂停监听容器，
+     * 降到一半以下时由完成任务的线程恢复；暂停前已经 poll 到的批次仍会整批分派，在途数最多超出一个批次。
+     */
+    public void submit(List<ConsumerRecord<String, String>> records, RecordHandler handler) {
+        for (ConsumerRecord<String, String> record : records) {
+            // 同一分区的记录按 offset 递增的顺序登记
+            Segment segment = offsetTracker.begin(new TopicPartition(record.topic(), record.partition()),
+                record.offset(), record.offset());
+            executor.submit(record.key(), () -> {
+                handleWithRetry(record, handler);
+                segment.complete();
+            }).whenComplete((result, error) -> resumeIfDrained());
+        }
+        pauseSwitch.pauseIf(() -> executor.inFlight() >= maxInFlight,
+            () -> "在途记录数 " + executor.inFlight() + " 达到上限 " + maxInFlight);
+    }
+
+    /**
+     * 在 poll 线程上提交当前消费者负责的分区中已经连续处理完成的 offset
+     */
+    public void commitCompleted(Consumer<?, ?> consumer) {
+        resumeIfDrained();
+        Map<TopicPartition, OffsetAndMetadata> offsets = offsetTracker.committableOffsets(consumer.assignment());
+        if (offsets.isEmpty()) {
+            return;
+        }
+        try {
+            consumer.commitSync(offsets);
+            offsetTracker.markCommitted(offsets);
+            log.debug("提交已处理完成的 offset: {}", offsets);
+        } catch (KafkaException e) {
+            // 下一轮 poll 或空闲事件会再次尝试提交
+            log.warn("提交 offset 失败，稍后重试: {} | Error: {}", offsets, e.getMessage());
+        }
+    }
+
+    /**
+     * 监听器空闲时没有新批次触发提交，由空闲事件补上
+     */
+    @EventListener(condition = "event.listenerId.startsWith('" + LISTENER_ID + "')")
+    public void onIdle(ListenerContainerIdleEvent event) {
+        commitCompleted(event.getConsumer());
+    }
+
+    /**
+     * 分区被回收前等待其在途记录处理完成并提交，新的消费者可以从准确的位置继续
+     */
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        try {
+            if (!offsetTracker.awaitCompletion(partitions, revokeTimeoutMs)) {
+                // 未完成的记录由新的消费者重新消费，重复处理由去重兜底
+                log.warn("分区回收前等待处理完成超时，未完成部分将被重新消费: partitions={}", partitions);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        commitCompleted(consumer);
+        offsetTracker.remove(partitions);
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        // 分区已经属于其他消费者，不能再提交
+        offsetTracker.remove(partitions);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdown(revokeTimeoutMs);
+    }
+
+    private void resumeIfDrained() {
+        pauseSwitch.resumeIf(() -> executor.inFlight() <= maxInFlight / 2);
+    }
+
+    // 有限次数的重试，仍然失败时记录日志并跳过，避免一条坏消息阻塞整个分区的 offset 提交
+    private void handleWithRetry(ConsumerRecord<String, String> record, RecordHandler handler) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                handler.handle(record);
+                return;
+            } catch (Exception e) {
+                if (attempt >= maxAttempts) {
+                    failedCounter.increment();
+                    log.error("消息处理失败，重试 {} 次后跳过: partition={}, offset={}, key={}, error={}",
+                        maxAttempts, record.partition(), record.offset(), record.key(), e.getMessage(), e);
+                    return;
+                }
+                log.warn("消息处理失败，{} ms 后重试: attempt={}, partition={}, offset={}, error={}",
+                    backoffMs, attempt, record.partition(), record.offset(), e.getMessage());
+            }
+            try {
+                Thread.sleep(backoffMs);
+            } catch (InterruptedException e) {
+                // 停止时放弃剩余重试，记录保持未完成，offset 不会提交
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("消息处理被中断: offset=" + record.offset(), e);
+            }
+        }
+    }
+}
@@ -1,12 +1,25 @@
 package org.zewang.kafkademo.service;
 
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.RecursiveTask;
 import java.util.concurrent.TimeUnit;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
 import org.springframework.stereotype.Service;
+import org.zewang.kafkademo.service.RedisKeyCleanupService.CleanupTask;
+import org.zewang.kafkademo.service.dedup.DedupNearCache;
+import org.zewang.kafkademo.service.dedup.MessageDeduplicator;
 
 /**
  * @author "Zewang"
@@ -19,14 +32,28 @@ import org.springframework.stereotype.Service;
 @Slf4j
 @Service
 @RequiredArgsConstructor
-public class RedisDedupService {
+// 只在 redis 去重后端下注册，其他后端不创建这个 bean，依赖它的地方通过 ObjectProvider 按需获取
+@ConditionalOnProperty(name = "kafka.dedup.backend", havingValue = "redis", matchIfMissing = true)
+public class RedisDedupService implements MessageDeduplicator {
 
     private final RedisTemplate<String, String> redisTemplate;
+    private final DedupNearCache nearCache;
+    private final RedisKeyCleanupService redisKeyCleanupService;
     private static final String DEDUP_PREFIX = "kafka_msg_dedup:"; // Redis键前缀
     private static final long EXPIRE_TIME = 24 * 60 * 60; // 24 小时过期时间
+    private static final byte[] MARK_VALUE = "1".getBytes(StandardCharsets.UTF_8);
+
+    // 处理中标记的租约：抢占时只写这么长的过期时间，确认成功后才延长到 24 小时；
+    // 进程在处理中途崩溃时，重投的消息最多等一个租约就能重新处理。需要大于单条消息的最长处理时间
+    @Value("${kafka.dedup.redis.lease-seconds:300}")
+    private long leaseSeconds;
 
     // 检查消息是否已处理过
     public boolean isMessageProcessed(String messageId) {
+        if (nearCache.contains(messageId)) {
+            log.debug("消息已处理过(近端缓存): {}", messageId);
+            return true;
+        }
         String key = DEDUP_PREFIX + messageId;
         Boolean hasKey = redisTemplate.hasKey(key);
         boolean processed = hasKey != null && hasKey;
@@ -43,11 +70,121 @@ public class RedisDedupService {
         log.debug("标记消息已处理: {}", messageId);
     }
 
+    /**
+     * 原子地检查并标记消息（SET NX EX），一次往返代替 hasKey + set，也不存在两次投递同时通过检查的竞态。
+     * 标记在处理之前写入，只带处理租约的过期时间，{@link #confirmProcessed} 时才延长到 24 小时；
+     * 处理失败时应调用 {@link #unmarkMessage(String)} 立即释放，否则重投的消息要等租约过期才能再处理。
+     * @return true 表示本次抢到了标记，应当处理；false 表示消息已处理过（或正在被处理）
+     */
+    @Override
+    public boolean tryMarkProcessed(String messageId) {
+        // 近端缓存只保存已确认处理成功的消息，命中即可判定重复；未命中不代表未处理，仍以 Redis 为准
+        if (nearCache.contains(messageId)) {
+            log.debug("消息已处理过(近端缓存): {}", messageId);
+            return false;
+        }
+        Boolean claimed = redisTemplate.opsForValue()
+            .setIfAbsent(DEDUP_PREFIX + messageId, "1", leaseSeconds, TimeUnit.SECONDS);
+        boolean result = Boolean.TRUE.equals(claimed);
+        if (!result) {
+            log.debug("消息已处理过: {}", messageId);
+        }
+        return result;
+    }
+
+    /**
+     * 批量版本的 tryMarkProcessed：整批 SET NX EX 通过 pipeline 在一次往返内完成。
+     * 批次内重复的 messageId 只有第一个会返回 true。
+     * @return 与 messageIds 顺序一一对应的结果
+     */
+    @Override
+    public List<Boolean> tryMarkProcessedBatch(Collection<String> messageIds) {
+        if (messageIds.isEmpty()) {
+            return List.of();
+        }
+        // 近端缓存命中的直接判定为重复，只有未命中的才进入 pipeline
+        List<Boolean> claimed = new ArrayList<>(messageIds.size());
+        List<String> remote = new ArrayList<>(messageIds.size());
+        for (String messageId : messageIds) {
+            boolean cached = nearCache.contains(messageId);
+            claimed.add(cached ? Boolean.FALSE : null);
+            if (!cached) {
+                remote.add(messageId);
+            }
+        }
+        if (remote.isEmpty()) {
+            return claimed;
+        }
+
+        Expiration expiration = Expiration.seconds(leaseSeconds);
+        List<Object> replies = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String messageId : remote) {
+                connection.stringCommands().set(rawKey(messageId), MARK_VALUE, expiration, SetOption.ifAbsent());
+            }
+            return null;
+        });
+
+        int reply = 0;
+        for (int i = 0; i < claimed.size(); i++) {
+            if (claimed.get(i) == null) {
+                claimed.set(i, Boolean.TRUE.equals(replies.get(reply++)));
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * 消息处理成功后调用：把标记的过期时间从处理租约延长到 24 小时，并把 messageId 放入近端缓存，
+     * 之后的重投无需访问 Redis 即可判定为重复
+     * @param partition 消息所在分区，分区被回收时对应的缓存条目会被清除
+     */
+    @Override
+    public void confirmProcessed(String messageId, TopicPartition partition) {
+        // 直接 SET 而不是 EXPIRE：处理超过租约、标记已经过期时也要补上
+        redisTemplate.opsForValue().set(DEDUP_PREFIX + messageId, "1", EXPIRE_TIME, TimeUnit.SECONDS);
+        nearCache.put(messageId, partition);
+    }
+
+    /**
+     * 释放 tryMarkProcessed 写入的标记，用于处理失败、需要等待重投的消息
+     */
+    @Override
+    public void unmarkMessage(String messageId) {
+        nearCache.invalidate(messageId);
+        redisTemplate.delete(DEDUP_PREFIX + messageId);
+        log.debug("释放消息处理标记: {}", messageId);
+    }
+
+    /**
+     * 批量释放标记，同样通过 pipeline 一次往返完成
+     */
+    @Override
+    public void unmarkMessages(Collection<String> messageIds) {
+        if (messageIds.isEmpty()) {
+            return;
+        }
+        messageIds.forEach(nearCache::invalidate);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String messageId : messageIds) {
+                connection.keyCommands().del(rawKey(messageId));
+            }
+            return null;
+        });
+        log.debug("批量释放消息处理标记: {} 条", messageIds.size());
+    }
+
     // 清除缓存
     // RedisDedupService.java
-    public void clearAll() {
-        redisTemplate.getConnectionFactory().getConnection().flushAll();
-        log.info("已清理所有Redis数据");
+    // 只清理去重前缀下的 key，后台分批 SCAN + UNLINK，不影响 Redis 中的其他数据
+    public CleanupTask clearAll() {
+        nearCache.clear();
+        CleanupTask task = redisKeyCleanupService.start(DEDUP_PREFIX);
+        log.info("已提交去重数据清理任务: {}", task.getId());
+        return task;
     }
 
+    // pipeline 中直接使用底层连接，key 需要自行编码；与 StringRedisSerializer 的 UTF-8 编码一致
+    private static byte[] rawKey(String messageId) {
+        return (DEDUP_PREFIX + messageId).getBytes(StandardCharsets.UTF_8);
+    }
 }
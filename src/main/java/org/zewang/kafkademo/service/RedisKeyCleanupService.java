@@ -0,0 +1,179 @@
+package org.zewang.kafkademo.service;
+
+
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.stereotype.Service;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 按 key 前缀清理 Redis：后台用增量 SCAN 分批找出匹配的 key，再用 UNLINK 异步释放，
+ *               每批之间短暂停顿，清理期间 Redis 仍能及时响应共用它的其他服务
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/19 01:30
+ */
+
+@Slf4j
+@Service
+public class RedisKeyCleanupService {
+
+    // 保留的任务记录数，超出后丢弃最早结束的任务
+    private static final int MAX_TASKS = 100;
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final int batchSize;
+    private final long pauseMs;
+
+    // 同一时间只执行一个清理任务，其余排队，避免多个任务叠加对 Redis 的压力
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "redis-key-cleanup");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, CleanupTask> tasks = new ConcurrentHashMap<>();
+
+    public RedisKeyCleanupService(RedisTemplate<String, String> redisTemplate,
+        @Value("${kafka.redis-cleanup.batch-size:500}") int batchSize,
+        @Value("${kafka.redis-cleanup.pause-ms:10}") long pauseMs) {
+        this.redisTemplate = redisTemplate;
+        this.batchSize = batchSize;
+        this.pauseMs = pauseMs;
+    }
+
+    /**
+     * 提交一个清理任务，立即返回，进度通过 {@link #getTask(String)} 查询
+     * @param prefix key 前缀，按字面匹配（其中的 * ? [ 等通配符会被转义）
+     * @throws IllegalArgumentException 前缀为空，清理范围会是整个 Redis
+     */
+    public CleanupTask start(String prefix) {
+        if (prefix == null || prefix.isBlank()) {
+            throw new IllegalArgumentException("清理前缀不能为空");
+        }
+        evictFinishedTasks();
+        CleanupTask task = new CleanupTask(UUID.randomUUID().toString(), prefix);
+        tasks.put(task.getId(), task);
+        executor.execute(() -> run(task));
+        log.info("已提交 Redis 清理任务: id={}, prefix={}", task.getId(), prefix);
+        return task;
+    }
+
+    public Optional<CleanupTask> getTask(String taskId) {
+        return Optional.ofNullable(tasks.get(taskId));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // 未完成的清理不必等待，已删除的 key 不会恢复，重新提交即可继续
+        executor.shutdownNow();
+    }
+
+    private void run(CleanupTask task) {
+        task.status = Status.RUNNING;
+        ScanOptions options = ScanOptions.scanOptions()
+            .match(escapeGlob(task.getPrefix()) + "*")
+            .count(batchSize)
+            .build();
+        List<String> batch = new ArrayList<>(batchSize);
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                task.scanned++;
+                if (batch.size() >= batchSize) {
+                    unlink(task, batch);
+                    TimeUnit.MILLISECONDS.sleep(pauseMs);
+                }
+            }
+            unlink(task, batch);
+            task.finish(Status.COMPLETED, null);
+            log.info("Redis 清理任务完成: id={}, prefix={}, deleted={}", task.getId(), task.getPrefix(),
+                task.getDeleted());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            task.finish(Status.CANCELLED, "应用关闭，清理中断");
+        } catch (RuntimeException e) {
+            task.finish(Status.FAILED, e.getMessage());
+            log.error("Redis 清理任务失败: id={}, prefix={}, deleted={}, error={}", task.getId(), task.getPrefix(),
+                task.getDeleted(), e.getMessage(), e);
+        }
+    }
+
+    // UNLINK 在后台线程释放内存，大 value 也不会阻塞 Redis 主线程
+    private void unlink(CleanupTask task, List<String> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Long removed = redisTemplate.unlink(batch);
+        task.deleted += removed != null ? removed : 0;
+        batch.clear();
+    }
+
+    private void evictFinishedTasks() {
+        if (tasks.size() < MAX_TASKS) {
+            return;
+        }
+        tasks.values().stream()
+            .filter(task -> task.getFinishedAt() != null)
+            .min((a, b) -> a.getFinishedAt().compareTo(b.getFinishedAt()))
+            .ifPresent(task -> tasks.remove(task.getId()));
+    }
+
+    // SCAN 的 MATCH 是 glob 模式，前缀中的特殊字符需要转义后按字面匹配
+    private static String escapeGlob(String prefix) {
+        StringBuilder escaped = new StringBuilder(prefix.length() + 8);
+        for (int i = 0; i < prefix.length(); i++) {
+            char c = prefix.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == ']' || c == '\\') {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    public enum Status {
+        PENDING, RUNNING, COMPLETED, FAILED, CANCELLED
+    }
+
+    /**
+     * 清理任务的进度，由清理线程更新，查询方读取
+     */
+    @Getter
+    public static class CleanupTask {
+
+        private final String id;
+        private final String prefix;
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+        private volatile Status status = Status.PENDING;
+        private volatile long scanned;
+        private volatile long deleted;
+        private volatile LocalDateTime finishedAt;
+        private volatile String error;
+
+        private CleanupTask(String id, String prefix) {
+            this.id = id;
+            this.prefix = prefix;
+        }
+
+        private void finish(Status finalStatus, String errorMessage) {
+            this.error = errorMessage;
+            this.finishedAt = LocalDateTime.now();
+            this.status = finalStatus;
+        }
+    }
+}
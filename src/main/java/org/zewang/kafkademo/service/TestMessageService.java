@@ -6,6 +6,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.zewang.kafkademo.entity.TestMessage;
 import org.zewang.kafkademo.repository.TestMessageRepository;
+import org.zewang.kafkademo.repository.TestMessageRepositoryCustom.UpsertResult;
 import java.util.List;
 import java.util.Optional;
 
@@ -39,6 +40,20 @@ public class TestMessageService {
         }
     }
 
+    /**
+     * 批量写入消息，一条语句写入一批；messageId 已存在的消息只把 processCount 加一，重复消息不会抛出异常
+     * @param testMessages 测试消息列表
+     * @return 插入和更新的行数
+     */
+    public UpsertResult upsertMessages(List<TestMessage> testMessages) {
+        if (testMessages.isEmpty()) {
+            return new UpsertResult(0, 0);
+        }
+        UpsertResult result = testMessageRepository.upsertAll(testMessages);
+        log.info("批量写入消息完成: 插入={}, 重复更新={}", result.inserted(), result.updated());
+        return result;
+    }
+
     /**
      * 根据消息ID查找消息
      * @param messageId 消息唯一标识
@@ -0,0 +1,180 @@
+package org.zewang.kafkademo.service.benchmark;
+
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+import org.zewang.kafkademo.service.RedisDedupService;
+import org.zewang.kafkademo.service.dedup.InMemoryDedupService;
+import org.zewang.kafkademo.service.dedup.MappedFileDedupService;
+import org.zewang.kafkademo.service.dedup.MessageDeduplicator;
+import org.zewang.kafkademo.util.LatencySketch;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 去重后端基准测试，对比 Redis、纯内存和 mmap 文件三种实现的写入/重复判断延迟和每百万 ID 的内存占用
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/19 02:00
+ */
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DedupBackendBenchmarkService {
+
+    // Redis 每次操作一个网络往返，只取部分 ID 测试，内存按比例换算到每百万
+    private static final int REDIS_MAX_IDS = 20_000;
+    private static final long TTL_HOURS = 24;
+
+    // 只在 redis 去重后端下存在，其他后端下跳过 Redis 的测量
+    private final ObjectProvider<RedisDedupService> redisDedupService;
+    private final RedisTemplate<String, String> redisTemplate;
+
+    /**
+     * 运行基准测试：每个后端先逐条写入 idCount 个新 ID，再逐条判断同一批 ID（全部为重复）
+     * @param idCount 消息 ID 数
+     * @return 各后端的延迟分位数和内存占用
+     */
+    public Map<String, Object> run(int idCount) {
+        List<String> ids = new ArrayList<>(idCount);
+        for (int i = 0; i < idCount; i++) {
+            ids.add(UUID.randomUUID().toString());
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("idCount", idCount);
+        result.put("memory", runInMemory(ids).toMap());
+        result.put("mmap", runMappedFile(ids).toMap());
+        RedisDedupService redis = redisDedupService.getIfAvailable();
+        if (redis != null) {
+            result.put("redis", runRedis(redis, ids.subList(0, Math.min(idCount, REDIS_MAX_IDS))).toMap());
+        } else {
+            result.put("redis", "skipped: kafka.dedup.backend is not redis");
+        }
+        log.info("去重后端基准测试完成: {}", result);
+        return result;
+    }
+
+    // 堆内存增量，GC 后测量，是近似值
+    private BackendResult runInMemory(List<String> ids) {
+        long before = usedHeap();
+        InMemoryDedupService service = new InMemoryDedupService(TTL_HOURS);
+        BackendResult result = measure(service, ids);
+        long bytes = usedHeap() - before;
+        // 测量结束前保持引用，避免表在第二次测量前被回收
+        log.debug("纯内存去重表大小: {}", service.size());
+        return result.withBytes(bytes);
+    }
+
+    // 文件大小即映射的堆外内存，按 max-entries = idCount 创建
+    private BackendResult runMappedFile(List<String> ids) {
+        Path file = null;
+        try {
+            file = Files.createTempFile("dedup-bench-", ".idx");
+            try (MappedFileDedupService service = new MappedFileDedupService(file, ids.size(), TTL_HOURS)) {
+                return measure(service, ids).withBytes(service.sizeInBytes());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    log.warn("删除基准测试文件失败: {}", file);
+                }
+            }
+        }
+    }
+
+    // Redis 内存取 INFO memory 的 used_memory 增量，同一实例上的其他写入会带来误差
+    private BackendResult runRedis(RedisDedupService redis, List<String> ids) {
+        long before = redisUsedMemory();
+        try {
+            BackendResult result = measure(redis, ids);
+            return result.withBytes(redisUsedMemory() - before);
+        } finally {
+            redis.unmarkMessages(ids);
+        }
+    }
+
+    private BackendResult measure(MessageDeduplicator deduplicator, List<String> ids) {
+        LatencySketch insert = new LatencySketch();
+        LatencySketch lookup = new LatencySketch();
+        long duplicatesMissed = 0;
+
+        long insertStart = System.nanoTime();
+        for (String id : ids) {
+            long start = System.nanoTime();
+            deduplicator.tryMarkProcessed(id);
+            insert.add(System.nanoTime() - start);
+        }
+        long insertNanos = System.nanoTime() - insertStart;
+
+        long lookupStart = System.nanoTime();
+        for (String id : ids) {
+            long start = System.nanoTime();
+            if (deduplicator.tryMarkProcessed(id)) {
+                duplicatesMissed++;
+            }
+            lookup.add(System.nanoTime() - start);
+        }
+        long lookupNanos = System.nanoTime() - lookupStart;
+
+        return new BackendResult(ids.size(), insert, insertNanos, lookup, lookupNanos, duplicatesMissed, 0);
+    }
+
+    private long redisUsedMemory() {
+        Properties info = redisTemplate.execute(
+            (RedisCallback<Properties>) (RedisConnection connection) -> connection.serverCommands().info("memory"));
+        return info != null ? Long.parseLong(info.getProperty("used_memory", "0")) : 0;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * 单个后端的测试结果，延迟单位为纳秒
+     */
+    private record BackendResult(int ids, LatencySketch insert, long insertNanos, LatencySketch lookup,
+                                 long lookupNanos, long duplicatesMissed, long bytes) {
+
+        BackendResult withBytes(long measuredBytes) {
+            return new BackendResult(ids, insert, insertNanos, lookup, lookupNanos, duplicatesMissed, measuredBytes);
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("ids", ids);
+            map.put("insertAvgNs", insertNanos / ids);
+            map.put("insertP50Ns", insert.quantile(0.50));
+            map.put("insertP99Ns", insert.quantile(0.99));
+            map.put("lookupAvgNs", lookupNanos / ids);
+            map.put("lookupP50Ns", lookup.quantile(0.50));
+            map.put("lookupP99Ns", lookup.quantile(0.99));
+            // 重复判断失败的次数，应为 0
+            map.put("duplicatesMissed", duplicatesMissed);
+            map.put("bytes", bytes);
+            map.put("mbPerMillionIds", String.format("%.1f", bytes * 1_000_000.0 / ids / (1024 * 1024)));
+            return map;
+        }
+    }
+}
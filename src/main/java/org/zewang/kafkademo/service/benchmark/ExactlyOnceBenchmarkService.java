@@ -0,0 +1,276 @@
+package org.zewang.kafkademo.service.benchmark;
+
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.IsolationLevel;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.zewang.kafkademo.consumer.ExactlyOnceTestMessageConsumer;
+import org.zewang.kafkademo.service.RedisDedupService;
+import org.zewang.kafkademo.service.admin.TopicManagementService;
+import org.zewang.kafkademo.util.LatencySketch;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 消费-转换-生产基准测试，对比 Redis 去重 + 手动提交与 Kafka 事务（exactly-once）两种处理路径
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/18 23:30
+ */
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ExactlyOnceBenchmarkService {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+    // 连续这么多次 poll 没有数据就认为输入已经读完
+    private static final int MAX_EMPTY_POLLS = 20;
+
+    private final TopicManagementService topicManagementService;
+    // 只在 redis 去重后端下存在，不存在时无法运行对照路径
+    private final ObjectProvider<RedisDedupService> redisDedupService;
+
+    @Value("${spring.kafka.bootstrap-servers}")
+    private String bootstrapServers;
+
+    // Redis 去重路径只在 redis 去重后端下可用
+    public boolean isRedisDedupAvailable() {
+        return redisDedupService.getIfAvailable() != null;
+    }
+
+    /**
+     * 运行基准测试：向临时主题写入 messageCount 条消息，两种路径各用独立的消费组完整处理一遍
+     * @param messageCount 输入消息数
+     * @param maxPollRecords 每次 poll 的最大记录数，也是一次提交（一个事务）包含的记录数上限
+     * @return 两种路径的吞吐量和每批提交延迟
+     * @throws IllegalStateException 当前去重后端不是 redis
+     */
+    public Map<String, Object> run(int messageCount, int maxPollRecords) {
+        RedisDedupService dedupService = redisDedupService.getIfAvailable();
+        if (dedupService == null) {
+            throw new IllegalStateException("Redis 去重路径需要 kafka.dedup.backend=redis");
+        }
+        String runId = Long.toString(System.currentTimeMillis());
+        String inputTopic = "eos-bench-input-" + runId;
+        String outputTopic = "eos-bench-output-" + runId;
+        topicManagementService.createTopic(inputTopic, 3, (short) 1);
+        topicManagementService.createTopic(outputTopic, 3, (short) 1);
+
+        try {
+            produceInput(inputTopic, messageCount, runId);
+
+            PathResult redis = runRedisDedup(dedupService, inputTopic, outputTopic, runId, messageCount, maxPollRecords);
+            PathResult transactional = runTransactional(inputTopic, outputTopic, runId, messageCount, maxPollRecords);
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("messageCount", messageCount);
+            result.put("maxPollRecords", maxPollRecords);
+            result.put("redisDedup", redis.toMap());
+            result.put("transactional", transactional.toMap());
+            result.put("throughputRatio", String.format("%.2fx", transactional.tps() / redis.tps()));
+            return result;
+        } finally {
+            topicManagementService.deleteTopic(inputTopic);
+            topicManagementService.deleteTopic(outputTopic);
+        }
+    }
+
+    private void produceInput(String topic, int messageCount, String runId) {
+        try (KafkaProducer<String, String> producer = new KafkaProducer<>(producerProps())) {
+            for (int i = 0; i < messageCount; i++) {
+                String key = "sender-" + (i % 4);
+                String value = String.format("{\"messageId\":\"eos-bench-%s-%d\",\"content\":\"%s\",\"sender\":\"%s\"}",
+                    runId, i, UUID.randomUUID(), key);
+                producer.send(new ProducerRecord<>(topic, key, value));
+            }
+            producer.flush();
+        }
+    }
+
+    // 现有路径：每批先在 Redis 中 SET NX 标记，发送结果并等待确认，再同步提交 offset
+    private PathResult runRedisDedup(RedisDedupService dedupService, String inputTopic, String outputTopic, String runId,
+        int messageCount, int maxPollRecords) {
+        LatencySketch latency = new LatencySketch();
+        List<String> claimedIds = new ArrayList<>(messageCount);
+        int processed = 0;
+        // 从第一批数据到达开始计时，不计入加入消费组和初始化事务的时间
+        long start = 0;
+
+        try (KafkaConsumer<String, String> consumer = new KafkaConsumer<>(
+                consumerProps("eos-bench-redis-" + runId, maxPollRecords, IsolationLevel.READ_UNCOMMITTED));
+            KafkaProducer<String, String> producer = new KafkaProducer<>(producerProps())) {
+            consumer.subscribe(List.of(inputTopic));
+            int emptyPolls = 0;
+            while (processed < messageCount && emptyPolls < MAX_EMPTY_POLLS) {
+                ConsumerRecords<String, String> records = consumer.poll(POLL_TIMEOUT);
+                if (records.isEmpty()) {
+                    emptyPolls++;
+                    continue;
+                }
+                emptyPolls = 0;
+                long batchStart = System.nanoTime();
+                if (start == 0) {
+                    start = batchStart;
+                }
+
+                List<ConsumerRecord<String, String>> batch = new ArrayList<>(records.count());
+                List<String> messageIds = new ArrayList<>(records.count());
+                for (ConsumerRecord<String, String> record : records) {
+                    batch.add(record);
+                    messageIds.add(messageIdOf(runId, record));
+                }
+                List<Boolean> claimed = dedupService.tryMarkProcessedBatch(messageIds);
+                for (int i = 0; i < batch.size(); i++) {
+                    if (claimed.get(i)) {
+                        ConsumerRecord<String, String> record = batch.get(i);
+                        producer.send(new ProducerRecord<>(outputTopic, record.key(), transform(record.value())));
+                        claimedIds.add(messageIds.get(i));
+                    }
+                }
+                producer.flush();
+                consumer.commitSync(nextOffsets(records));
+
+                processed += records.count();
+                latency.add((System.nanoTime() - batchStart) / 1_000_000);
+            }
+        } finally {
+            // 基准测试写入的去重标记不保留
+            dedupService.unmarkMessages(claimedIds);
+        }
+        return new PathResult(processed, start == 0 ? 0 : System.nanoTime() - start, latency);
+    }
+
+    // 事务路径：每批在一个事务中发送结果并提交 offset，不访问外部存储
+    private PathResult runTransactional(String inputTopic, String outputTopic, String runId,
+        int messageCount, int maxPollRecords) {
+        LatencySketch latency = new LatencySketch();
+        int processed = 0;
+        // 从第一批数据到达开始计时，不计入加入消费组和初始化事务的时间
+        long start = 0;
+
+        Map<String, Object> producerProps = producerProps();
+        producerProps.put(ProducerConfig.TRANSACTIONAL_ID_CONFIG, "eos-bench-tx-" + runId);
+        try (KafkaConsumer<String, String> consumer = new KafkaConsumer<>(
+                consumerProps("eos-bench-tx-" + runId, maxPollRecords, IsolationLevel.READ_COMMITTED));
+            KafkaProducer<String, String> producer = new KafkaProducer<>(producerProps)) {
+            producer.initTransactions();
+            consumer.subscribe(List.of(inputTopic));
+            int emptyPolls = 0;
+            while (processed < messageCount && emptyPolls < MAX_EMPTY_POLLS) {
+                ConsumerRecords<String, String> records = consumer.poll(POLL_TIMEOUT);
+                if (records.isEmpty()) {
+                    emptyPolls++;
+                    continue;
+                }
+                emptyPolls = 0;
+                long batchStart = System.nanoTime();
+                if (start == 0) {
+                    start = batchStart;
+                }
+
+                producer.beginTransaction();
+                try {
+                    for (ConsumerRecord<String, String> record : records) {
+                        producer.send(new ProducerRecord<>(outputTopic, record.key(), transform(record.value())));
+                    }
+                    producer.sendOffsetsToTransaction(nextOffsets(records), consumer.groupMetadata());
+                    producer.commitTransaction();
+                } catch (RuntimeException e) {
+                    producer.abortTransaction();
+                    throw e;
+                }
+
+                processed += records.count();
+                latency.add((System.nanoTime() - batchStart) / 1_000_000);
+            }
+        }
+        return new PathResult(processed, start == 0 ? 0 : System.nanoTime() - start, latency);
+    }
+
+    private static String messageIdOf(String runId, ConsumerRecord<String, String> record) {
+        return "eos-bench-" + runId + "-" + record.partition() + "-" + record.offset();
+    }
+
+    private static String transform(String value) {
+        try {
+            return ExactlyOnceTestMessageConsumer.transform(value);
+        } catch (Exception e) {
+            throw new IllegalStateException("消息转换失败: " + value, e);
+        }
+    }
+
+    private static Map<TopicPartition, OffsetAndMetadata> nextOffsets(ConsumerRecords<String, String> records) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (TopicPartition partition : records.partitions()) {
+            List<ConsumerRecord<String, String>> partitionRecords = records.records(partition);
+            long last = partitionRecords.get(partitionRecords.size() - 1).offset();
+            offsets.put(partition, new OffsetAndMetadata(last + 1));
+        }
+        return offsets;
+    }
+
+    private Map<String, Object> producerProps() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        props.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+        return props;
+    }
+
+    private Properties consumerProps(String groupId, int maxPollRecords, IsolationLevel isolationLevel) {
+        Properties props = new Properties();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, isolationLevel.toString());
+        return props;
+    }
+
+    // 一种处理路径的测试结果，批次提交延迟按毫秒记录
+    private record PathResult(int processed, long elapsedNanos, LatencySketch latency) {
+
+        double tps() {
+            return elapsedNanos == 0 ? 0 : processed / (elapsedNanos / 1_000_000_000.0);
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("processed", processed);
+            result.put("durationMs", String.format("%.1f", elapsedNanos / 1_000_000.0));
+            result.put("tps", String.format("%.2f", tps()));
+            result.put("batches", latency.count());
+            result.put("batchLatencyP50Ms", latency.quantile(0.5));
+            result.put("batchLatencyP99Ms", latency.quantile(0.99));
+            return result;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.zewang.kafkademo.service.benchmark;
+
+
+import com.sun.management.ThreadMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.zewang.kafkademo.consumer.parser.AccessLogParser;
+import org.zewang.kafkademo.entity.LogEntry;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 访问日志解析基准测试，对比正则解析与单遍扫描解析
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/18 11:30
+ */
+
+@Slf4j
+@Service
+public class LogParserBenchmarkService {
+
+    private static final String[] METHODS = {"GET", "GET", "GET", "POST", "PUT", "DELETE", "HEAD"};
+    private static final String[] PATHS = {
+        "/api/users/123", "/api/status", "/login", "/images/logo.png", "/admin/temp",
+        "/api/orders?page=2&size=20", "/static/js/app.8f3a1c.js", "/api/products/42/reviews"
+    };
+    private static final int[] STATUS_CODES = {200, 200, 200, 201, 204, 301, 401, 404, 500};
+    private static final String[] USER_AGENTS = {
+        "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0 Safari/537.36",
+        "Mozilla/5.0 (iPhone; CPU iPhone OS 17_0 like Mac OS X) AppleWebKit/605.1.15 Mobile Safari",
+        "Curl/7.64.1", "NodeJS Agent", "Go-http-client/1.1"
+    };
+    // 与日志中的格式保持一致，月份固定使用英文缩写
+    private static final DateTimeFormatter LOG_TIME_FORMATTER =
+        DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss", Locale.ENGLISH);
+
+    /**
+     * 运行基准测试
+     * @param lineCount 生成的样本日志行数
+     * @param iterations 每种解析方式遍历样本的轮数
+     * @return 每条日志的平均耗时等测试结果
+     */
+    public Map<String, Object> run(int lineCount, int iterations) {
+        List<String> lines = generateLines(lineCount);
+        AccessLogParser parser = new AccessLogParser();
+
+        // 先校验两条路径的解析结果完全一致
+        int mismatches = 0;
+        for (String line : lines) {
+            if (!parser.parse(line).equals(parser.parseWithRegex(line))) {
+                mismatches++;
+            }
+        }
+
+        // 预热，让 JIT 充分编译两条路径
+        measure(lines, Math.max(1, iterations / 2), parser::parseWithRegex);
+        measure(lines, Math.max(1, iterations / 2), parser::parse);
+
+        double regexNsPerOp = measure(lines, iterations, parser::parseWithRegex);
+        double scannerNsPerOp = measure(lines, iterations, parser::parse);
+        double regexBytesPerOp = measureAllocation(lines, parser::parseWithRegex);
+        double scannerBytesPerOp = measureAllocation(lines, parser::parse);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("lineCount", lineCount);
+        result.put("iterations", iterations);
+        result.put("mismatches", mismatches);
+        result.put("regexNsPerOp", String.format("%.1f", regexNsPerOp));
+        result.put("scannerNsPerOp", String.format("%.1f", scannerNsPerOp));
+        result.put("speedup", String.format("%.2fx", regexNsPerOp / scannerNsPerOp));
+        result.put("regexBytesPerOp", String.format("%.0f", regexBytesPerOp));
+        result.put("scannerBytesPerOp", String.format("%.0f", scannerBytesPerOp));
+        log.info("日志解析基准测试完成: {}", result);
+        return result;
+    }
+
+    private double measure(List<String> lines, int iterations, Function<String, LogEntry> parseFunction) {
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (String line : lines) {
+                LogEntry entry = parseFunction.apply(line);
+                checksum += entry.getStatusCode() + entry.getPath().length();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        // 使用 checksum，避免解析结果被 JIT 当作死代码消除
+        log.debug("benchmark checksum: {}", checksum);
+        return (double) elapsed / ((long) iterations * lines.size());
+    }
+
+    // 每条日志在当前线程上分配的平均字节数，不支持统计时返回 -1
+    private double measureAllocation(List<String> lines, Function<String, LogEntry> parseFunction) {
+        if (!(ManagementFactory.getThreadMXBean() instanceof ThreadMXBean threadMXBean)
+            || !threadMXBean.isThreadAllocatedMemorySupported()) {
+            return -1;
+        }
+        long checksum = 0;
+        long before = threadMXBean.getCurrentThreadAllocatedBytes();
+        for (String line : lines) {
+            checksum += parseFunction.apply(line).getStatusCode();
+        }
+        long allocated = threadMXBean.getCurrentThreadAllocatedBytes() - before;
+        log.debug("allocation checksum: {}", checksum);
+        return (double) allocated / lines.size();
+    }
+
+    // 生成样本：时间戳单调递增，相邻多行常落在同一秒内，贴近真实访问日志
+    private List<String> generateLines(int lineCount) {
+        Random random = new Random(42);
+        List<String> lines = new ArrayList<>(lineCount);
+        LocalDateTime time = LocalDateTime.of(2025, 10, 30, 10, 30, 0);
+        for (int i = 0; i < lineCount; i++) {
+            if (random.nextInt(4) == 0) {
+                time = time.plusSeconds(1);
+            }
+            String ip = "10.0." + random.nextInt(256) + "." + (1 + random.nextInt(254));
+            lines.add(ip + " - - [" + time.format(LOG_TIME_FORMATTER) + " +0800] \""
+                + METHODS[random.nextInt(METHODS.length)] + " "
+                + PATHS[random.nextInt(PATHS.length)] + " HTTP/1.1\" "
+                + STATUS_CODES[random.nextInt(STATUS_CODES.length)] + " "
+                + random.nextInt(500) + "ms \""
+                + USER_AGENTS[random.nextInt(USER_AGENTS.length)] + "\"");
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,199 @@
+package org.zewang.kafkademo.service.benchmark;
+
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.compress.Compression;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.MemoryRecords;
+import org.apache.kafka.common.record.MemoryRecordsBuilder;
+import org.apache.kafka.common.record.TimestampType;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.springframework.stereotype.Service;
+import org.zewang.kafkademo.config.serialize.ZstdDictionaries;
+import org.zewang.kafkademo.config.serialize.ZstdDictionaryDeserializer;
+import org.zewang.kafkademo.config.serialize.ZstdDictionarySerializer;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 逐条 zstd 字典压缩基准测试：按不同批次大小用 Kafka 的 MemoryRecords 组装记录批次，
+ *               对比只用批次压缩（none/snappy/lz4/zstd）与先逐条字典压缩两种方式的网络字节数和 CPU 耗时；
+ *               样本前一半用于训练字典，后一半用于测量
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/19 04:30
+ */
+
+@Slf4j
+@Service
+public class RecordCompressionBenchmarkService {
+
+    private static final String TOPIC = "compression-bench";
+    // 1 条对应 linger 攒不到批次的低流量场景
+    private static final int[] BATCH_SIZES = {1, 10, 100};
+
+    /**
+     * 运行基准测试
+     * @param recordCount 每种样本生成的记录数
+     * @param dictionarySize 字典大小上限（字节）
+     * @return 各样本、各批次大小下每种压缩方式的每条记录字节数和 CPU 耗时，
+     *         以及 test-messages 样本训练出的字典（base64），解码后保存为文件即可配置到 kafka.zstd-dictionary.paths
+     */
+    public Map<String, Object> run(int recordCount, int dictionarySize) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("recordCount", recordCount);
+        result.put("dictionarySize", dictionarySize);
+
+        Map<String, List<Sample>> datasets = new LinkedHashMap<>();
+        datasets.put("testMessages", generateTestMessages(recordCount));
+        datasets.put("clickEvents", generateClickEvents(recordCount));
+
+        byte[] testMessageDictionary = null;
+        for (Map.Entry<String, List<Sample>> dataset : datasets.entrySet()) {
+            List<Sample> samples = dataset.getValue();
+            List<Sample> training = samples.subList(0, samples.size() / 2);
+            List<Sample> evaluation = samples.subList(samples.size() / 2, samples.size());
+
+            byte[] dictionary = ZstdDictionaries.train(training.stream().map(Sample::value).toList(), dictionarySize);
+            if ("testMessages".equals(dataset.getKey())) {
+                testMessageDictionary = dictionary;
+            }
+            result.put(dataset.getKey(), runDataset(evaluation, dictionary));
+        }
+
+        log.info("逐条字典压缩基准测试完成: {}", result);
+        // 字典只随响应返回，不写入服务端文件
+        if (testMessageDictionary != null) {
+            result.put("testMessagesDictionaryBase64", Base64.getEncoder().encodeToString(testMessageDictionary));
+        }
+        return result;
+    }
+
+    private Map<String, Object> runDataset(List<Sample> samples, byte[] dictionary) {
+        ZstdDictionarySerializer<byte[]> serializer =
+            new ZstdDictionarySerializer<>(new ByteArraySerializer(), dictionary, 3);
+        ZstdDictionaryDeserializer<byte[]> deserializer =
+            new ZstdDictionaryDeserializer<>(new ByteArrayDeserializer(), List.of(dictionary));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("avgValueBytes", String.format("%.1f",
+            samples.stream().mapToInt(sample -> sample.value().length).average().orElse(0)));
+        result.put("dictionaryId", Integer.toUnsignedString(ZstdDictionaries.dictionaryId(dictionary)));
+        result.put("dictionaryBytes", dictionary.length);
+
+        Map<String, Compression> batchCompressions = new LinkedHashMap<>();
+        batchCompressions.put("none", Compression.NONE);
+        batchCompressions.put("snappy", Compression.snappy().build());
+        batchCompressions.put("lz4", Compression.lz4().build());
+        batchCompressions.put("zstd", Compression.zstd().build());
+
+        for (int batchSize : BATCH_SIZES) {
+            Map<String, Object> batchResult = new LinkedHashMap<>();
+            for (Map.Entry<String, Compression> entry : batchCompressions.entrySet()) {
+                batchResult.put(entry.getKey(), measure(samples, batchSize, entry.getValue(), null));
+            }
+            batchResult.put("dict", measure(samples, batchSize, Compression.NONE, serializer));
+            batchResult.put("dict+snappy", measure(samples, batchSize, Compression.snappy().build(), serializer));
+            result.put("batch" + batchSize, batchResult);
+        }
+
+        // 消费端逐条解压的 CPU 耗时
+        List<byte[]> compressed = new ArrayList<>(samples.size());
+        List<RecordHeaders> headers = new ArrayList<>(samples.size());
+        for (Sample sample : samples) {
+            RecordHeaders recordHeaders = new RecordHeaders();
+            compressed.add(serializer.serialize(TOPIC, recordHeaders, sample.value()));
+            headers.add(recordHeaders);
+        }
+        long checksum = 0;
+        long start = cpuTime();
+        for (int i = 0; i < compressed.size(); i++) {
+            checksum += deserializer.deserialize(TOPIC, headers.get(i), compressed.get(i)).length;
+        }
+        result.put("dictDecompressCpuNsPerRecord",
+            String.format("%.0f", (double) (cpuTime() - start) / compressed.size()));
+        log.debug("benchmark checksum: {}", checksum);
+        return result;
+    }
+
+    // 先预热一遍，再测量一遍；CPU 耗时包含逐条压缩和批次组装（含批次压缩）
+    private Map<String, Object> measure(List<Sample> samples, int batchSize, Compression compression,
+        ZstdDictionarySerializer<byte[]> serializer) {
+        buildBatches(samples, batchSize, compression, serializer);
+        long start = cpuTime();
+        long wireBytes = buildBatches(samples, batchSize, compression, serializer);
+        long cpuNanos = cpuTime() - start;
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("wireBytesPerRecord", String.format("%.1f", (double) wireBytes / samples.size()));
+        map.put("cpuNsPerRecord", String.format("%.0f", (double) cpuNanos / samples.size()));
+        return map;
+    }
+
+    private long buildBatches(List<Sample> samples, int batchSize, Compression compression,
+        ZstdDictionarySerializer<byte[]> serializer) {
+        long wireBytes = 0;
+        long timestamp = System.currentTimeMillis();
+        for (int from = 0; from < samples.size(); from += batchSize) {
+            MemoryRecordsBuilder builder = MemoryRecords.builder(ByteBuffer.allocate(1024), compression,
+                TimestampType.CREATE_TIME, 0L);
+            for (Sample sample : samples.subList(from, Math.min(from + batchSize, samples.size()))) {
+                RecordHeaders headers = new RecordHeaders();
+                byte[] value = serializer != null ? serializer.serialize(TOPIC, headers, sample.value()) : sample.value();
+                builder.append(timestamp, sample.key(), value, headers.toArray());
+            }
+            MemoryRecords records = builder.build();
+            wireBytes += records.sizeInBytes();
+        }
+        return wireBytes;
+    }
+
+    private static long cpuTime() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        return threadMXBean.isCurrentThreadCpuTimeSupported()
+            ? threadMXBean.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+    // 与 TestMessageProducer 发送的 JSON 一致
+    private List<Sample> generateTestMessages(int recordCount) {
+        Random random = new Random(42);
+        List<Sample> samples = new ArrayList<>(recordCount);
+        long now = 1761800000000L;
+        for (int i = 0; i < recordCount; i++) {
+            String key = "sender-" + (1 + random.nextInt(4));
+            String messageId = "msg-" + (now + i * 3000L) + "-" + UUID.randomUUID().toString().substring(0, 8);
+            String content = "测试消息 #" + i + " 内容: " + UUID.randomUUID();
+            String value = String.format("{\"messageId\":\"%s\",\"content\":\"%s\",\"sender\":\"%s\"}",
+                messageId, content, key);
+            samples.add(new Sample(key.getBytes(StandardCharsets.UTF_8), value.getBytes(StandardCharsets.UTF_8)));
+        }
+        return samples;
+    }
+
+    // 与 ClickEventProducer 发送的点击事件一致
+    private List<Sample> generateClickEvents(int recordCount) {
+        Random random = new Random(42);
+        List<Sample> samples = new ArrayList<>(recordCount);
+        long now = 1761800000000L;
+        for (int i = 0; i < recordCount; i++) {
+            String userId = "user" + (random.nextInt(5) + 1);
+            String value = userId + ":" + (random.nextBoolean() ? "click" : "view") + ":" + (now + i * 1000L);
+            samples.add(new Sample(userId.getBytes(StandardCharsets.UTF_8), value.getBytes(StandardCharsets.UTF_8)));
+        }
+        return samples;
+    }
+
+    private record Sample(byte[] key, byte[] value) {
+    }
+}
@@ -0,0 +1,213 @@
+package org.zewang.kafkademo.service.benchmark;
+
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.sun.management.ThreadMXBean;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.stereotype.Service;
+import org.zewang.kafkademo.config.serialize.CustomJsonDeserializer;
+import org.zewang.kafkademo.config.serialize.CustomJsonSerializer;
+import org.zewang.kafkademo.config.serialize.TestMessageBinaryDeserializer;
+import org.zewang.kafkademo.config.serialize.TestMessageBinarySerializer;
+import org.zewang.kafkademo.entity.TestMessage;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: TestMessage 序列化基准测试，对比 JSON 与紧凑二进制格式的消息大小、序列化/反序列化耗时和每条分配的字节数；
+ *               jsonBaseline 为每次调用都走通用 ObjectMapper 的原实现
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/19 02:30
+ */
+
+@Slf4j
+@Service
+public class TestMessageSerdeBenchmarkService {
+
+    private static final String TOPIC = "test-messages";
+    private static final String[] STATUSES = {"PENDING", "PROCESSED", "FAILED"};
+
+    /**
+     * 运行基准测试
+     * @param recordCount 生成的样本消息数
+     * @param iterations 每种格式遍历样本的轮数
+     * @return 每条消息的平均字节数、耗时和分配量
+     */
+    public Map<String, Object> run(int recordCount, int iterations) {
+        List<TestMessage> messages = generateMessages(recordCount);
+        Map<String, Object> config = Map.of("serializedClass", TestMessage.class.getName());
+        Map<String, Object> blackbirdConfig = Map.of("serializedClass", TestMessage.class.getName(),
+            "useBlackbird", true);
+
+        ObjectMapper baselineMapper = new ObjectMapper();
+        baselineMapper.registerModule(new JavaTimeModule());
+        Serializer<TestMessage> baselineSerializer = (topic, data) -> {
+            try {
+                return baselineMapper.writeValueAsBytes(data);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        Deserializer<TestMessage> baselineDeserializer = (topic, data) -> {
+            try {
+                return baselineMapper.readValue(data, TestMessage.class);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        CustomJsonSerializer<TestMessage> jsonSerializer = new CustomJsonSerializer<>();
+        jsonSerializer.configure(config, false);
+        CustomJsonDeserializer<TestMessage> jsonDeserializer = new CustomJsonDeserializer<>();
+        jsonDeserializer.configure(config, false);
+        CustomJsonSerializer<TestMessage> blackbirdSerializer = new CustomJsonSerializer<>();
+        blackbirdSerializer.configure(blackbirdConfig, false);
+        CustomJsonDeserializer<TestMessage> blackbirdDeserializer = new CustomJsonDeserializer<>();
+        blackbirdDeserializer.configure(blackbirdConfig, false);
+        TestMessageBinarySerializer binarySerializer = new TestMessageBinarySerializer();
+        TestMessageBinaryDeserializer binaryDeserializer = new TestMessageBinaryDeserializer();
+
+        // 预热，让 JIT 充分编译各条路径
+        int warmUp = Math.max(1, iterations / 2);
+        measure(messages, warmUp, baselineSerializer, baselineDeserializer);
+        measure(messages, warmUp, jsonSerializer, jsonDeserializer);
+        measure(messages, warmUp, blackbirdSerializer, blackbirdDeserializer);
+        measure(messages, warmUp, binarySerializer, binaryDeserializer);
+
+        FormatResult baseline = measure(messages, iterations, baselineSerializer, baselineDeserializer);
+        FormatResult json = measure(messages, iterations, jsonSerializer, jsonDeserializer);
+        FormatResult blackbird = measure(messages, iterations, blackbirdSerializer, blackbirdDeserializer);
+        FormatResult binary = measure(messages, iterations, binarySerializer, binaryDeserializer);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("recordCount", recordCount);
+        result.put("iterations", iterations);
+        result.put("jsonBaseline", baseline.toMap());
+        result.put("json", json.toMap());
+        result.put("jsonBlackbird", blackbird.toMap());
+        result.put("binary", binary.toMap());
+        result.put("sizeRatio", String.format("%.2f", binary.bytesPerRecord() / json.bytesPerRecord()));
+        result.put("serializeSpeedup", String.format("%.2fx", json.serializeNsPerOp() / binary.serializeNsPerOp()));
+        result.put("deserializeSpeedup",
+            String.format("%.2fx", json.deserializeNsPerOp() / binary.deserializeNsPerOp()));
+        log.info("TestMessage 序列化基准测试完成: {}", result);
+        return result;
+    }
+
+    private FormatResult measure(List<TestMessage> messages, int iterations, Serializer<TestMessage> serializer,
+        Deserializer<TestMessage> deserializer) {
+        List<byte[]> encoded = new ArrayList<>(messages.size());
+        long totalBytes = 0;
+        for (TestMessage message : messages) {
+            byte[] bytes = serializer.serialize(TOPIC, message);
+            encoded.add(bytes);
+            totalBytes += bytes.length;
+        }
+
+        // 往返结果与原消息不一致的条数，应为 0
+        int mismatches = 0;
+        for (int i = 0; i < messages.size(); i++) {
+            if (!messages.get(i).equals(deserializer.deserialize(TOPIC, encoded.get(i)))) {
+                mismatches++;
+            }
+        }
+
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (TestMessage message : messages) {
+                checksum += serializer.serialize(TOPIC, message).length;
+            }
+        }
+        long serializeNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (byte[] bytes : encoded) {
+                checksum += deserializer.deserialize(TOPIC, bytes).getProcessCount();
+            }
+        }
+        long deserializeNanos = System.nanoTime() - start;
+
+        // 分配量只统计一轮，单线程执行，不受其他线程影响
+        long serializeAllocated = allocatedBytes();
+        for (TestMessage message : messages) {
+            checksum += serializer.serialize(TOPIC, message).length;
+        }
+        serializeAllocated = allocatedBytes() - serializeAllocated;
+        long deserializeAllocated = allocatedBytes();
+        for (byte[] bytes : encoded) {
+            checksum += deserializer.deserialize(TOPIC, bytes).getProcessCount();
+        }
+        deserializeAllocated = allocatedBytes() - deserializeAllocated;
+        // 使用 checksum，避免结果被 JIT 当作死代码消除
+        log.debug("benchmark checksum: {}", checksum);
+
+        long ops = (long) iterations * messages.size();
+        int count = messages.size();
+        return new FormatResult((double) totalBytes / count, (double) serializeNanos / ops,
+            (double) deserializeNanos / ops, allocationPerRecord(serializeAllocated, count),
+            allocationPerRecord(deserializeAllocated, count), mismatches);
+    }
+
+    // 当前线程累计分配的字节数，不支持统计时返回 -1
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof ThreadMXBean threadMXBean
+            && threadMXBean.isThreadAllocatedMemorySupported()) {
+            return threadMXBean.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    private static double allocationPerRecord(long allocated, int count) {
+        return allocatedBytes() < 0 ? -1 : (double) allocated / count;
+    }
+
+    // 生成样本：字段取值与 CustomSerializerProducer 发送的消息一致
+    private List<TestMessage> generateMessages(int recordCount) {
+        Random random = new Random(42);
+        List<TestMessage> messages = new ArrayList<>(recordCount);
+        LocalDateTime time = LocalDateTime.of(2025, 10, 30, 10, 30, 0, 123_456_789);
+        for (int i = 0; i < recordCount; i++) {
+            time = time.plusNanos(random.nextInt(50_000_000));
+            TestMessage message = new TestMessage();
+            message.setId(i % 2 == 0 ? null : (long) random.nextInt(10_000_000));
+            message.setMessageId("msg-" + (1761800000000L + i) + "-" + UUID.randomUUID().toString().substring(0, 8));
+            message.setContent("测试消息 #" + i + " 内容: " + UUID.randomUUID());
+            message.setSender("sender-" + (1 + random.nextInt(4)));
+            message.setReceivedTime(time);
+            message.setStatus(STATUSES[random.nextInt(STATUSES.length)]);
+            message.setProcessCount(random.nextInt(3));
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    private record FormatResult(double bytesPerRecord, double serializeNsPerOp, double deserializeNsPerOp,
+                                double serializeAllocatedPerRecord, double deserializeAllocatedPerRecord,
+                                int mismatches) {
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("bytesPerRecord", String.format("%.1f", bytesPerRecord));
+            map.put("serializeNsPerOp", String.format("%.1f", serializeNsPerOp));
+            map.put("deserializeNsPerOp", String.format("%.1f", deserializeNsPerOp));
+            map.put("serializeAllocatedBytesPerRecord", String.format("%.0f", serializeAllocatedPerRecord));
+            map.put("deserializeAllocatedBytesPerRecord", String.format("%.0f", deserializeAllocatedPerRecord));
+            map.put("mismatches", mismatches);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package org.zewang.kafkademo.service.dedup;
+
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.zewang.kafkademo.util.BloomFilter;
+import org.zewang.kafkademo.util.Hashing;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 基于按时间分桶轮换的布隆过滤器的去重实现：每个时间桶一个过滤器，超出去重窗口的桶整体丢弃，
+ *               内存只取决于桶数、每桶容量和误判率，与消息总量无关；布隆过滤器判定"可能存在"的消息再到
+ *               dedup_processed_ids 表精确确认，误判只会多一次数据库查询，不会丢消息。
+ *               确认表由本类在 confirmProcessed 时写入，不依赖调用方把同一个 ID 写进业务表，任何去重 ID 都适用。
+ *               过滤器和抢占集合都只在本进程内，"一定不存在"的判定只对本实例处理过的消息成立：
+ *               消费组中再均衡后重投到其他实例的消息会被再次处理，因此只能用于单实例消费（kafka.dedup.bloom.single-owner）
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/18 22:30
+ */
+
+@Slf4j
+public class BloomDedupService implements MessageDeduplicator {
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private static final String CONFIRM_SQL = "INSERT INTO dedup_processed_ids (message_id, processed_at) VALUES (?, ?)"
+        + " ON DUPLICATE KEY UPDATE processed_at = VALUES(processed_at)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long bucketMillis;
+    private final int bucketCount;
+    private final long expectedInsertionsPerBucket;
+    private final double bucketFpp;
+
+    // 桶起始时间 -> 过滤器；查询时需要检查窗口内所有的桶
+    private final ConcurrentSkipListMap<Long, Bucket> buckets = new ConcurrentSkipListMap<>();
+
+    // 已抢到标记、尚未确认或释放的消息，保证同一条消息在本实例内不会被并发处理两次
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final Counter absentCounter;
+    private final Counter confirmedCounter;
+    private final Counter falsePositiveCounter;
+
+    /**
+     * @param bucketMinutes 每个时间桶的跨度
+     * @param bucketCount 保留的桶数，去重窗口 = bucketMinutes * bucketCount
+     * @param expectedInsertionsPerBucket 每个桶的期望消息数，超出后误判率上升，但结果仍然正确
+     * @param fpp 一次查询的总误判率，均摊到每个桶
+     */
+    public BloomDedupService(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry, long bucketMinutes,
+        int bucketCount, long expectedInsertionsPerBucket, double fpp) {
+        if (bucketMinutes <= 0 || bucketCount <= 0) {
+            throw new IllegalArgumentException("非法参数: bucketMinutes=" + bucketMinutes + ", bucketCount=" + bucketCount);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.bucketMillis = TimeUnit.MINUTES.toMillis(bucketMinutes);
+        this.bucketCount = bucketCount;
+        this.expectedInsertionsPerBucket = expectedInsertionsPerBucket;
+        // 一次查询要检查所有的桶，总误判率约等于各桶误判率之和
+        this.bucketFpp = fpp / bucketCount;
+
+        this.absentCounter = lookupCounter(meterRegistry, "absent");
+        this.confirmedCounter = lookupCounter(meterRegistry, "confirmed");
+        this.falsePositiveCounter = lookupCounter(meterRegistry, "false_positive");
+        Gauge.builder("dedup.bloom.memory", this, BloomDedupService::sizeInBytes)
+            .description("去重布隆过滤器占用的内存")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        Gauge.builder("dedup.bloom.buckets", buckets, Map::size)
+            .description("去重布隆过滤器当前的时间桶数")
+            .register(meterRegistry);
+
+        long bucketBytes = BloomFilter.create(expectedInsertionsPerBucket, bucketFpp).sizeInBytes();
+        log.info("布隆过滤器去重已启用: 窗口={} 分钟, 桶数={}, 每桶容量={}, 总误判率={}, 内存上限约 {} bytes",
+            bucketMinutes * bucketCount, bucketCount, expectedInsertionsPerBucket, fpp, bucketBytes * bucketCount);
+    }
+
+    /**
+     * 从 dedup_processed_ids 表加载去重窗口内已处理的消息。过滤器只在进程内，重启后需要重建，
+     * 否则窗口内的重投消息会被当作新消息再次处理。
+     */
+    public void warmUp() {
+        long start = System.currentTimeMillis();
+        long windowStart = windowStart(start);
+        AtomicLong loaded = new AtomicLong();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                "SELECT message_id, processed_at FROM dedup_processed_ids WHERE processed_at >= ?",
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            // 流式读取，窗口内的消息数可能很大
+            ps.setFetchSize(Integer.MIN_VALUE);
+            ps.setTimestamp(1, toTimestamp(windowStart));
+            return ps;
+        }, rs -> {
+            long processedAt = rs.getTimestamp("processed_at").toLocalDateTime().atZone(ZONE)
+                .toInstant().toEpochMilli();
+            bucketFor(processedAt).put(Hashing.hash64(rs.getString("message_id")));
+            loaded.incrementAndGet();
+        });
+        log.info("布隆过滤器去重预热完成: 加载 {} 条, 耗时 {}ms", loaded.get(), System.currentTimeMillis() - start);
+    }
+
+    @Override
+    public boolean tryMarkProcessed(String messageId) {
+        return tryMarkProcessedBatch(List.of(messageId)).get(0);
+    }
+
+    @Override
+    public List<Boolean> tryMarkProcessedBatch(Collection<String> messageIds) {
+        if (messageIds.isEmpty()) {
+            return List.of();
+        }
+        long now = System.currentTimeMillis();
+        List<String> ids = new ArrayList<>(messageIds);
+        List<Boolean> claimed = new ArrayList<>(ids.size());
+        List<String> probable = new ArrayList<>();
+
+        for (String messageId : ids) {
+            if (!inFlight.add(messageId)) {
+                // 正在被处理，或者批次内重复
+                claimed.add(Boolean.FALSE);
+                continue;
+            }
+            if (mightContain(Hashing.hash64(messageId), now)) {
+                claimed.add(null);
+                probable.add(messageId);
+            } else {
+                absentCounter.increment();
+                claimed.add(Boolean.TRUE);
+            }
+        }
+        if (probable.isEmpty()) {
+            return claimed;
+        }
+
+        // 只有"可能存在"的消息需要精确确认，一批只查一次数据库
+        Set<String> existing = findConfirmed(probable, now);
+        for (int i = 0; i < claimed.size(); i++) {
+            if (claimed.get(i) != null) {
+                continue;
+            }
+            String messageId = ids.get(i);
+            if (existing.contains(messageId)) {
+                confirmedCounter.increment();
+                inFlight.remove(messageId);
+                claimed.set(i, Boolean.FALSE);
+                log.debug("消息已处理过: {}", messageId);
+            } else {
+                falsePositiveCounter.increment();
+                claimed.set(i, Boolean.TRUE);
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * 处理成功后才写入过滤器和确认表：布隆过滤器不能删除元素，处理失败的消息不能留下记录。
+     * 确认表写入失败时只记录日志，这条消息之后的重投会被当作误判再处理一次
+     */
+    @Override
+    public void confirmProcessed(String messageId, TopicPartition partition) {
+        long now = System.currentTimeMillis();
+        try {
+            jdbcTemplate.update(CONFIRM_SQL, messageId, toTimestamp(now));
+        } catch (RuntimeException e) {
+            log.warn("写入去重确认表失败: messageId={} | Error: {}", messageId, e.getMessage());
+        }
+        bucketFor(now).put(Hashing.hash64(messageId));
+        inFlight.remove(messageId);
+    }
+
+    @Override
+    public void unmarkMessage(String messageId) {
+        inFlight.remove(messageId);
+    }
+
+    @Override
+    public void unmarkMessages(Collection<String> messageIds) {
+        messageIds.forEach(inFlight::remove);
+    }
+
+    public long sizeInBytes() {
+        long bytes = 0;
+        for (Bucket bucket : buckets.values()) {
+            bytes += bucket.filter.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    // 一批只查一次，只认去重窗口内确认的记录，与过滤器的窗口一致
+    private Set<String> findConfirmed(List<String> messageIds, long now) {
+        String placeholders = String.join(",", Collections.nCopies(messageIds.size(), "?"));
+        List<Object> args = new ArrayList<>(messageIds.size() + 1);
+        args.addAll(messageIds);
+        args.add(toTimestamp(windowStart(now)));
+        return new HashSet<>(jdbcTemplate.queryForList(
+            "SELECT message_id FROM dedup_processed_ids WHERE message_id IN (" + placeholders + ") AND processed_at >= ?",
+            String.class, args.toArray()));
+    }
+
+    private boolean mightContain(long hash, long now) {
+        long windowStart = windowStart(now);
+        for (Map.Entry<Long, Bucket> entry : buckets.descendingMap().entrySet()) {
+            if (entry.getKey() < windowStart) {
+                break;
+            }
+            if (entry.getValue().filter.mightContain(hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 返回 timestamp 所在的桶，按需创建，并丢弃已经滑出窗口的桶
+    private Bucket bucketFor(long timestamp) {
+        long bucketStart = timestamp - Math.floorMod(timestamp, bucketMillis);
+        Bucket bucket = buckets.get(bucketStart);
+        if (bucket != null) {
+            return bucket;
+        }
+        Bucket created = new Bucket(BloomFilter.create(expectedInsertionsPerBucket, bucketFpp));
+        bucket = buckets.putIfAbsent(bucketStart, created);
+        if (bucket != null) {
+            return bucket;
+        }
+        long windowStart = windowStart(System.currentTimeMillis());
+        buckets.headMap(windowStart).clear();
+        // 每个桶只在创建时清理一次确认表中滑出窗口的记录
+        try {
+            jdbcTemplate.update("DELETE FROM dedup_processed_ids WHERE processed_at < ?", toTimestamp(windowStart));
+        } catch (RuntimeException e) {
+            log.warn("清理去重确认表失败，下次轮换时重试 | Error: {}", e.getMessage());
+        }
+        return created;
+    }
+
+    private long windowStart(long now) {
+        long currentStart = now - Math.floorMod(now, bucketMillis);
+        return currentStart - (bucketCount - 1) * bucketMillis;
+    }
+
+    private static Timestamp toTimestamp(long epochMillis) {
+        return Timestamp.valueOf(Instant.ofEpochMilli(epochMillis).atZone(ZONE).toLocalDateTime());
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("dedup.bloom.lookup")
+            .description("布隆过滤器去重的查询结果")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    private final class Bucket {
+
+        private final BloomFilter filter;
+        private final AtomicLong insertions = new AtomicLong();
+
+        private Bucket(BloomFilter filter) {
+            this.filter = filter;
+        }
+
+        private void put(long hash) {
+            if (filter.put(hash) && insertions.incrementAndGet() == expectedInsertionsPerBucket) {
+                log.warn("去重布隆过滤器时间桶已写满 {} 条，误判率将上升（结果仍由确认表确认）",
+                    expectedInsertionsPerBucket);
+            }
+        }
+    }
+}
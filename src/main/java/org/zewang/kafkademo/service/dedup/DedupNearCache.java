@@ -0,0 +1,150 @@
+package org.zewang.kafkademo.service.dedup;
+
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 去重的进程内近端缓存：记录本实例最近处理成功的 messageId，重投的消息在本地即可判定为重复；
+ *               容量有上限、按 LRU 淘汰，过期时间不超过 Redis 标记，Redis 始终是权威数据
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/18 22:00
+ */
+
+@Slf4j
+@Component
+public class DedupNearCache implements ConsumerAwareRebalanceListener {
+
+    private final boolean enabled;
+    private final int maxSize;
+    private final long ttlNanos;
+
+    // accessOrder = true，超过容量时淘汰最久未访问的条目
+    private final LinkedHashMap<String, Entry> entries;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    public DedupNearCache(MeterRegistry meterRegistry,
+        @Value("${kafka.dedup.near-cache.enabled:true}") boolean enabled,
+        @Value("${kafka.dedup.near-cache.max-size:100000}") int maxSize,
+        @Value("${kafka.dedup.near-cache.ttl-seconds:600}") long ttlSeconds) {
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > DedupNearCache.this.maxSize;
+            }
+        };
+        this.hitCounter = Counter.builder("dedup.near.cache")
+            .description("去重近端缓存的查询次数")
+            .tag("result", "hit")
+            .register(meterRegistry);
+        this.missCounter = Counter.builder("dedup.near.cache")
+            .description("去重近端缓存的查询次数")
+            .tag("result", "miss")
+            .register(meterRegistry);
+        Gauge.builder("dedup.near.cache.size", this, DedupNearCache::size)
+            .description("去重近端缓存中的条目数")
+            .register(meterRegistry);
+    }
+
+    /**
+     * 查询消息是否已被本实例处理过。返回 false 只表示本地没有记录，需要再查 Redis。
+     */
+    public boolean contains(String messageId) {
+        if (!enabled) {
+            return false;
+        }
+        boolean hit;
+        synchronized (entries) {
+            Entry entry = entries.get(messageId);
+            hit = entry != null && entry.expiresAtNanos - System.nanoTime() > 0;
+            if (entry != null && !hit) {
+                entries.remove(messageId);
+            }
+        }
+        (hit ? hitCounter : missCounter).increment();
+        return hit;
+    }
+
+    /**
+     * 记录处理成功的消息。只能在处理成功（Redis 中已有标记）之后调用，缓存里不会出现 Redis 没有的记录。
+     * @param partition 消息所在分区，分区被回收时据此清除
+     */
+    public void put(String messageId, TopicPartition partition) {
+        if (!enabled) {
+            return;
+        }
+        long expiresAt = System.nanoTime() + ttlNanos;
+        synchronized (entries) {
+            entries.put(messageId, new Entry(partition, expiresAt));
+        }
+    }
+
+    public void invalidate(String messageId) {
+        synchronized (entries) {
+            entries.remove(messageId);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * 分区转移到其他实例后，这些分区的后续消息由对方处理，本地记录不再有命中价值，清除以腾出容量；
+     * 分区再次分配回来时从 Redis 重新建立记录
+     */
+    @Override
+    public void onPartitionsRevokedAfterCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        evictPartitions(partitions);
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        evictPartitions(partitions);
+    }
+
+    private void evictPartitions(Collection<TopicPartition> partitions) {
+        if (!enabled || partitions.isEmpty()) {
+            return;
+        }
+        Set<TopicPartition> revoked = new HashSet<>(partitions);
+        int removed;
+        synchronized (entries) {
+            int before = entries.size();
+            entries.values().removeIf(entry -> revoked.contains(entry.partition));
+            removed = before - entries.size();
+        }
+        log.info("分区被回收，清除去重近端缓存: partitions={}, removed={}", partitions, removed);
+    }
+
+    private record Entry(TopicPartition partition, long expiresAtNanos) {
+    }
+}
@@ -0,0 +1,90 @@
+package org.zewang.kafkademo.service.dedup;
+
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 纯内存的去重实现：messageId -> 过期时间，进程重启后丢失，适合分区只由单个实例消费、
+ *               可以接受重启后短时间内重复处理的部署
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/19 02:00
+ */
+
+@Slf4j
+public class InMemoryDedupService implements MessageDeduplicator {
+
+    // 每写入这么多条清理一次过期记录，不需要额外的定时线程
+    private static final int PURGE_INTERVAL = 1 << 16;
+
+    private final ConcurrentHashMap<String, Long> marks = new ConcurrentHashMap<>();
+    private final AtomicLong writes = new AtomicLong();
+    private final long ttlMillis;
+
+    public InMemoryDedupService(long ttlHours) {
+        this.ttlMillis = TimeUnit.HOURS.toMillis(ttlHours);
+    }
+
+    @Override
+    public boolean tryMarkProcessed(String messageId) {
+        long now = System.currentTimeMillis();
+        long expiresAt = now + ttlMillis;
+        boolean[] claimed = new boolean[1];
+        // 不存在或已过期时写入新的过期时间，compute 保证并发投递时只有一个能抢到
+        marks.compute(messageId, (id, existing) -> {
+            if (existing != null && existing > now) {
+                return existing;
+            }
+            claimed[0] = true;
+            return expiresAt;
+        });
+        if (!claimed[0]) {
+            log.debug("消息已处理过: {}", messageId);
+        } else if (writes.incrementAndGet() % PURGE_INTERVAL == 0) {
+            purgeExpired(now);
+        }
+        return claimed[0];
+    }
+
+    @Override
+    public List<Boolean> tryMarkProcessedBatch(Collection<String> messageIds) {
+        List<Boolean> claimed = new ArrayList<>(messageIds.size());
+        for (String messageId : messageIds) {
+            claimed.add(tryMarkProcessed(messageId));
+        }
+        return claimed;
+    }
+
+    // 标记在 tryMarkProcessed 时已经写入
+    @Override
+    public void confirmProcessed(String messageId, TopicPartition partition) {
+    }
+
+    @Override
+    public void unmarkMessage(String messageId) {
+        marks.remove(messageId);
+    }
+
+    @Override
+    public void unmarkMessages(Collection<String> messageIds) {
+        messageIds.forEach(marks::remove);
+    }
+
+    public int size() {
+        return marks.size();
+    }
+
+    private void purgeExpired(long now) {
+        int before = marks.size();
+        marks.values().removeIf(expiresAt -> expiresAt <= now);
+        log.debug("清理过期去重记录: {} -> {}", before, marks.size());
+    }
+}
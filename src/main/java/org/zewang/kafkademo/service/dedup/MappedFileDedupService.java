@@ -0,0 +1,290 @@
+package org.zewang.kafkademo.service.dedup;
+
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.zewang.kafkademo.util.Hashing;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 基于内存映射文件的去重实现：开放寻址哈希表直接放在 mmap 文件中，数据在堆外、进程重启后仍然保留；
+ *               每个 messageId 保存 128 位指纹和过期时间，固定 32 字节，不保存原始字符串
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/19 02:00
+ */
+
+@Slf4j
+public class MappedFileDedupService implements MessageDeduplicator, AutoCloseable {
+
+    private static final long MAGIC = 0x4B44_4445_4455_5031L; // "KDDEDUP1"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = 32;
+    // 单个 MappedByteBuffer 以 int 寻址，槽位数上限 2^25（文件约 1GB）
+    private static final int MAX_CAPACITY = 1 << 25;
+    private static final double MAX_LOAD = 0.75;
+    // 指纹第二个 64 位使用不同的种子，两者合起来约 128 位，不同 messageId 指纹相同的概率可以忽略
+    private static final long SECOND_SEED = 0x2545F4914F6CDD1DL;
+
+    // 槽位状态：CLAIMED 为已抢占、尚未处理完成；重启时 CLAIMED 会被清除，避免崩溃前未处理完的消息被当作重复
+    private static final int EMPTY = 0;
+    private static final int CLAIMED = 1;
+    private static final int CONFIRMED = 2;
+    private static final int TOMBSTONE = 3;
+
+    // 槽位内的字段偏移
+    private static final int HI = 0;
+    private static final int LO = 8;
+    private static final int EXPIRES_AT = 16;
+    private static final int STATE = 24;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final int mask;
+    private final long ttlMillis;
+
+    // 非 EMPTY 的槽位数（含墓碑和已过期的记录），超过负载上限时原地重建
+    private int used;
+    // 上次重建后的有效记录数；之后新增的槽位不足容量的 1/16 时不再重建，避免有效记录本身超限时每次写入都全表重建
+    private int liveAtLastRebuild;
+
+    /**
+     * 打开或创建存储文件。文件已存在时沿用文件中的容量
+     * @param maxEntries 期望同时保存的最大记录数
+     */
+    public MappedFileDedupService(Path path, long maxEntries, long ttlHours) {
+        this.path = path;
+        this.ttlMillis = TimeUnit.HOURS.toMillis(ttlHours);
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            boolean exists = Files.exists(path) && Files.size(path) >= HEADER_SIZE;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+
+            int slots = exists ? readCapacity(channel) : capacityFor(maxEntries);
+            this.capacity = slots;
+            this.mask = slots - 1;
+            this.buffer = channel.map(MapMode.READ_WRITE, 0, HEADER_SIZE + (long) slots * SLOT_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("打开去重存储文件失败: " + path, e);
+        }
+
+        if (buffer.getLong(0) == MAGIC) {
+            recover();
+        } else {
+            buffer.putLong(0, MAGIC);
+            buffer.putInt(8, FORMAT_VERSION);
+            buffer.putInt(12, capacity);
+        }
+        log.info("mmap 去重存储已打开: path={}, capacity={}, used={}, 文件大小={} bytes",
+            path, capacity, used, sizeInBytes());
+    }
+
+    @Override
+    public synchronized boolean tryMarkProcessed(String messageId) {
+        long hi = Hashing.hash64(messageId);
+        long lo = Hashing.mix(SECOND_SEED, messageId);
+        long now = System.currentTimeMillis();
+
+        int free = -1;
+        int index = (int) hi & mask;
+        for (int probes = 0; probes < capacity; probes++, index = (index + 1) & mask) {
+            int offset = slotOffset(index);
+            int state = buffer.getInt(offset + STATE);
+            if (state == EMPTY) {
+                break;
+            }
+            boolean reusable = state == TOMBSTONE || buffer.getLong(offset + EXPIRES_AT) <= now;
+            if (!reusable && buffer.getLong(offset + HI) == hi && buffer.getLong(offset + LO) == lo) {
+                log.debug("消息已处理过: {}", messageId);
+                return false;
+            }
+            if (reusable && free < 0) {
+                free = index;
+            }
+        }
+
+        if (free < 0) {
+            if (used + 1 > capacity * MAX_LOAD && used - liveAtLastRebuild >= capacity / 16) {
+                // 重建只保留未过期的有效记录，上面的探测已确认其中没有该 messageId，直接取空槽即可
+                rebuild(now);
+            }
+            free = firstEmpty((int) hi & mask);
+            used++;
+        }
+        int offset = slotOffset(free);
+        buffer.putLong(offset + HI, hi);
+        buffer.putLong(offset + LO, lo);
+        buffer.putLong(offset + EXPIRES_AT, now + ttlMillis);
+        buffer.putInt(offset + STATE, CLAIMED);
+        return true;
+    }
+
+    @Override
+    public List<Boolean> tryMarkProcessedBatch(Collection<String> messageIds) {
+        List<Boolean> claimed = new ArrayList<>(messageIds.size());
+        for (String messageId : messageIds) {
+            claimed.add(tryMarkProcessed(messageId));
+        }
+        return claimed;
+    }
+
+    @Override
+    public synchronized void confirmProcessed(String messageId, TopicPartition partition) {
+        int offset = find(messageId);
+        if (offset >= 0) {
+            buffer.putInt(offset + STATE, CONFIRMED);
+        }
+    }
+
+    @Override
+    public synchronized void unmarkMessage(String messageId) {
+        int offset = find(messageId);
+        if (offset >= 0) {
+            buffer.putInt(offset + STATE, TOMBSTONE);
+        }
+    }
+
+    @Override
+    public void unmarkMessages(Collection<String> messageIds) {
+        messageIds.forEach(this::unmarkMessage);
+    }
+
+    /**
+     * 存储文件大小，即占用的堆外内存上限
+     */
+    public long sizeInBytes() {
+        return HEADER_SIZE + (long) capacity * SLOT_SIZE;
+    }
+
+    /**
+     * 把映射区中的修改刷到磁盘并关闭文件
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+        log.info("mmap 去重存储已关闭: path={}", path);
+    }
+
+    // 返回 messageId 对应的未过期记录的槽位偏移，不存在时返回 -1
+    private int find(String messageId) {
+        long hi = Hashing.hash64(messageId);
+        long lo = Hashing.mix(SECOND_SEED, messageId);
+        int index = (int) hi & mask;
+        for (int probes = 0; probes < capacity; probes++, index = (index + 1) & mask) {
+            int offset = slotOffset(index);
+            int state = buffer.getInt(offset + STATE);
+            if (state == EMPTY) {
+                return -1;
+            }
+            if (state != TOMBSTONE && buffer.getLong(offset + HI) == hi && buffer.getLong(offset + LO) == lo) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    private int firstEmpty(int start) {
+        int index = start;
+        for (int probes = 0; probes < capacity; probes++, index = (index + 1) & mask) {
+            if (buffer.getInt(slotOffset(index) + STATE) == EMPTY) {
+                return index;
+            }
+        }
+        throw new IllegalStateException("去重存储已满: capacity=" + capacity);
+    }
+
+    // 启动时清除上次运行中抢占但未完成的记录，并统计已用槽位
+    private void recover() {
+        int released = 0;
+        used = 0;
+        for (int index = 0; index < capacity; index++) {
+            int offset = slotOffset(index);
+            int state = buffer.getInt(offset + STATE);
+            if (state == CLAIMED) {
+                buffer.putInt(offset + STATE, TOMBSTONE);
+                released++;
+            }
+            if (state != EMPTY) {
+                used++;
+            }
+        }
+        if (released > 0) {
+            log.warn("mmap 去重存储中有 {} 条上次未处理完成的记录，已释放", released);
+        }
+        if (used > capacity * MAX_LOAD) {
+            rebuild(System.currentTimeMillis());
+        }
+    }
+
+    // 墓碑和过期记录过多时原地重建：取出有效记录，清空后重新插入
+    private void rebuild(long now) {
+        List<long[]> live = new ArrayList<>();
+        for (int index = 0; index < capacity; index++) {
+            int offset = slotOffset(index);
+            int state = buffer.getInt(offset + STATE);
+            if ((state == CLAIMED || state == CONFIRMED) && buffer.getLong(offset + EXPIRES_AT) > now) {
+                live.add(new long[] {buffer.getLong(offset + HI), buffer.getLong(offset + LO),
+                    buffer.getLong(offset + EXPIRES_AT), state});
+            }
+            buffer.putInt(offset + STATE, EMPTY);
+        }
+        if (live.size() + 1 > capacity * MAX_LOAD) {
+            // 有效记录本身已经超过负载上限，继续写入空槽直到真正写满（firstEmpty 抛出存储已满）；需要调大 max-entries
+            log.warn("mmap 去重存储有效记录过多，探测长度将增加: live={}, capacity={}", live.size(), capacity);
+        }
+        for (long[] entry : live) {
+            int offset = slotOffset(firstEmpty((int) entry[0] & mask));
+            buffer.putLong(offset + HI, entry[0]);
+            buffer.putLong(offset + LO, entry[1]);
+            buffer.putLong(offset + EXPIRES_AT, entry[2]);
+            buffer.putInt(offset + STATE, (int) entry[3]);
+        }
+        used = live.size();
+        liveAtLastRebuild = used;
+        log.info("mmap 去重存储已重建: live={}, capacity={}", used, capacity);
+    }
+
+    private static int slotOffset(int index) {
+        return HEADER_SIZE + index * SLOT_SIZE;
+    }
+
+    private static int capacityFor(long maxEntries) {
+        long slots = Math.max(16, (long) Math.ceil(maxEntries / MAX_LOAD));
+        if (slots > MAX_CAPACITY) {
+            throw new IllegalArgumentException("max-entries 过大: " + maxEntries);
+        }
+        return Integer.highestOneBit((int) slots - 1) << 1;
+    }
+
+    private static int readCapacity(FileChannel channel) throws IOException {
+        MappedByteBuffer header = channel.map(MapMode.READ_ONLY, 0, HEADER_SIZE);
+        if (header.getLong(0) != MAGIC || header.getInt(8) != FORMAT_VERSION) {
+            throw new IllegalStateException("不是有效的去重存储文件");
+        }
+        int capacity = header.getInt(12);
+        if (Integer.bitCount(capacity) != 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalStateException("去重存储文件容量无效: " + capacity);
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,42 @@
+package org.zewang.kafkademo.service.dedup;
+
+
+import java.util.Collection;
+import java.util.List;
+import org.apache.kafka.common.TopicPartition;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 消息去重接口：处理前抢占标记，处理成功后确认，处理失败时释放
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/18 22:30
+ */
+
+public interface MessageDeduplicator {
+
+    /**
+     * 检查并标记消息
+     * @return true 表示本次抢到了标记，应当处理；false 表示消息已处理过（或正在被处理）
+     */
+    boolean tryMarkProcessed(String messageId);
+
+    /**
+     * 批量检查并标记，批次内重复的 messageId 只有第一个会返回 true
+     * @return 与 messageIds 顺序一一对应的结果
+     */
+    List<Boolean> tryMarkProcessedBatch(Collection<String> messageIds);
+
+    /**
+     * 消息处理成功后调用
+     * @param partition 消息所在分区
+     */
+    void confirmProcessed(String messageId, TopicPartition partition);
+
+    /**
+     * 释放 tryMarkProcessed 抢到的标记，用于处理失败、需要等待重投的消息
+     */
+    void unmarkMessage(String messageId);
+
+    void unmarkMessages(Collection<String> messageIds);
+}
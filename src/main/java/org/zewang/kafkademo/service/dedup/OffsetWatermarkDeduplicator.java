@@ -0,0 +1,93 @@
+package org.zewang.kafkademo.service.dedup;
+
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 基于 offset 水位的去重：同一分区内 offset 单调递增，只需在内存中记录每个分区已处理的最大 offset，
+ *               不大于水位的记录即为重复，不需要任何外部存储；分区分配时以已提交的 offset 作为初始水位
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/18 23:00
+ */
+
+@Slf4j
+@Component
+public class OffsetWatermarkDeduplicator implements ConsumerAwareRebalanceListener {
+
+    // 分区 -> 已处理的最大 offset；只包含当前分配给本实例的分区
+    private final Map<TopicPartition, Long> watermarks = new ConcurrentHashMap<>();
+
+    private final Counter duplicateCounter;
+
+    public OffsetWatermarkDeduplicator(MeterRegistry meterRegistry) {
+        this.duplicateCounter = Counter.builder("dedup.watermark.duplicates")
+            .description("offset 不大于分区水位而被跳过的记录数")
+            .register(meterRegistry);
+    }
+
+    /**
+     * 判断记录是否已经处理过，只比较内存中的水位
+     */
+    public boolean isProcessed(ConsumerRecord<?, ?> record) {
+        Long watermark = watermarks.get(new TopicPartition(record.topic(), record.partition()));
+        boolean processed = watermark != null && record.offset() <= watermark;
+        if (processed) {
+            duplicateCounter.increment();
+            log.debug("记录 offset 不大于水位，已处理过: partition={}, offset={}, watermark={}",
+                record.partition(), record.offset(), watermark);
+        }
+        return processed;
+    }
+
+    /**
+     * 记录处理成功后推进水位
+     */
+    public void markProcessed(ConsumerRecord<?, ?> record) {
+        watermarks.merge(new TopicPartition(record.topic(), record.partition()), record.offset(), Math::max);
+    }
+
+    /**
+     * 已提交的 offset 是下一条要消费的位置，水位取它减一；没有提交记录的分区不设水位
+     */
+    @Override
+    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(new HashSet<>(partitions));
+        for (TopicPartition partition : partitions) {
+            OffsetAndMetadata offset = committed.get(partition);
+            if (offset != null) {
+                watermarks.put(partition, offset.offset() - 1);
+            } else {
+                watermarks.remove(partition);
+            }
+        }
+        log.info("分区分配，初始化 offset 水位: {}", watermarks);
+    }
+
+    // 分区转给其他实例后，本地水位不再可靠，重新分配回来时从已提交的 offset 重建
+    @Override
+    public void onPartitionsRevokedAfterCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        partitions.forEach(watermarks::remove);
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        partitions.forEach(watermarks::remove);
+    }
+}
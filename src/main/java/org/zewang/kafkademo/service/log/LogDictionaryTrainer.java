@@ -0,0 +1,104 @@
+package org.zewang.kafkademo.service.log;
+
+
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.zewang.kafkademo.config.serialize.ZstdDictionaries;
+import org.zewang.kafkademo.entity.LogCompressionDictionary;
+import org.zewang.kafkademo.repository.LogCompressionDictionaryRepository;
+import org.zewang.kafkademo.util.LogMessageCompressor;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 日志原文压缩字典的训练与加载：启动时从 web_log_dictionaries 加载全部字典，最新的一份用于压缩；
+ *               还没有字典时收集解析成功的日志行作为样本，攒够后训练一份并保存，之后的日志开始压缩
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/19 05:30
+ */
+
+@Slf4j
+@Service
+public class LogDictionaryTrainer {
+
+    private final LogCompressionDictionaryRepository dictionaryRepository;
+    private final int sampleCount;
+    private final int dictionarySize;
+    private final int level;
+
+    private final List<byte[]> samples = new ArrayList<>();
+
+    public LogDictionaryTrainer(LogCompressionDictionaryRepository dictionaryRepository,
+        @Value("${kafka.log-consumer.original-message.dictionary.sample-count:5000}") int sampleCount,
+        @Value("${kafka.log-consumer.original-message.dictionary.size:16384}") int dictionarySize,
+        @Value("${kafka.log-consumer.original-message.dictionary.level:3}") int level) {
+        this.dictionaryRepository = dictionaryRepository;
+        this.sampleCount = sampleCount;
+        this.dictionarySize = dictionarySize;
+        this.level = level;
+    }
+
+    @PostConstruct
+    public void load() {
+        // 其他实例训练的字典在解压时按 ID 现查
+        LogMessageCompressor.setDictionaryLoader(id -> dictionaryRepository.findById(id)
+            .map(LogCompressionDictionary::getContent)
+            .orElse(null));
+        List<LogCompressionDictionary> dictionaries = dictionaryRepository.findAll();
+        dictionaries.forEach(dictionary -> LogMessageCompressor.register(dictionary.getContent()));
+        dictionaryRepository.findTopByOrderByCreatedAtDesc().ifPresent(latest -> {
+            LogMessageCompressor.activate(latest.getContent(), level);
+            log.info("日志压缩字典已加载: 共 {} 份, 当前 id={}", dictionaries.size(),
+                Integer.toUnsignedString(latest.getDictId()));
+        });
+    }
+
+    /**
+     * 还没有可用字典时收集一条样本，攒够 sample-count 条后训练并启用字典
+     */
+    public void offerSample(String message) {
+        if (LogMessageCompressor.hasActiveDictionary()) {
+            return;
+        }
+        synchronized (samples) {
+            if (LogMessageCompressor.hasActiveDictionary()) {
+                return;
+            }
+            samples.add(message.getBytes(StandardCharsets.UTF_8));
+            if (samples.size() < sampleCount) {
+                return;
+            }
+            List<byte[]> batch = new ArrayList<>(samples);
+            samples.clear();
+            train(batch);
+        }
+    }
+
+    private void train(List<byte[]> batch) {
+        byte[] dictionary;
+        try {
+            dictionary = ZstdDictionaries.train(batch, dictionarySize);
+        } catch (RuntimeException e) {
+            // 样本太少或太相似时 zstd 无法训练，重新收集
+            log.warn("日志压缩字典训练失败，重新收集样本: samples={} | Error: {}", batch.size(), e.getMessage());
+            return;
+        }
+        int id = ZstdDictionaries.dictionaryId(dictionary);
+        try {
+            // 先落库再启用，保证任何压缩数据的字典都能找回
+            dictionaryRepository.save(new LogCompressionDictionary(id, dictionary, LocalDateTime.now()));
+        } catch (RuntimeException e) {
+            log.warn("日志压缩字典保存失败，暂不启用: id={} | Error: {}", Integer.toUnsignedString(id), e.getMessage());
+            return;
+        }
+        LogMessageCompressor.activate(dictionary, level);
+        log.info("日志压缩字典训练完成: id={}, samples={}, size={} bytes",
+            Integer.toUnsignedString(id), batch.size(), dictionary.length);
+    }
+}
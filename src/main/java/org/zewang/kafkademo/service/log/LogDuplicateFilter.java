@@ -0,0 +1,112 @@
+package org.zewang.kafkademo.service.log;
+
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.zewang.kafkademo.entity.LogEntry;
+import org.zewang.kafkademo.util.BloomFilter;
+import org.zewang.kafkademo.util.Hashing;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 日志重复投递的进程内预过滤器，基于两代轮换的布隆过滤器
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/18 15:30
+ */
+
+@Slf4j
+@Component
+public class LogDuplicateFilter {
+
+    private final boolean enabled;
+    private final long expectedInsertions;
+    private final double fpp;
+
+    // 当前代写满 expectedInsertions 后转为上一代，内存上限固定为两代过滤器的大小
+    private volatile BloomFilter current;
+    private volatile BloomFilter previous;
+    private long currentInsertions;
+
+    public LogDuplicateFilter(
+        @Value("${kafka.log-consumer.dedup.enabled:true}") boolean enabled,
+        @Value("${kafka.log-consumer.dedup.expected-insertions:1000000}") long expectedInsertions,
+        @Value("${kafka.log-consumer.dedup.fpp:0.000001}") double fpp) {
+        this.enabled = enabled;
+        this.expectedInsertions = expectedInsertions;
+        this.fpp = fpp;
+        this.current = enabled ? BloomFilter.create(expectedInsertions, fpp) : null;
+        if (enabled) {
+            log.info("日志去重预过滤器已启用: expectedInsertions={}, fpp={}, 单代大小={} bytes",
+                expectedInsertions, fpp, current.sizeInBytes());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 过滤掉已经成功写入过的日志，只返回可能是新日志的记录。
+     * 注意：布隆过滤器存在误判，每条新日志被误判为重复而丢弃的概率约为 fpp。
+     */
+    public List<LogEntry> filterSeen(List<LogEntry> entries) {
+        if (!enabled) {
+            return entries;
+        }
+        BloomFilter currentFilter = current;
+        BloomFilter previousFilter = previous;
+        List<LogEntry> candidates = new ArrayList<>(entries.size());
+        for (LogEntry entry : entries) {
+            if (entry.isUnparsed()) {
+                // 没有唯一键字段，不同的行也会得到相同的哈希
+                candidates.add(entry);
+                continue;
+            }
+            long hash = keyHash(entry);
+            boolean seen = currentFilter.mightContain(hash)
+                || (previousFilter != null && previousFilter.mightContain(hash));
+            if (!seen) {
+                candidates.add(entry);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * 记录已经落库的日志。必须在写库成功之后调用，否则写库失败重试时会被误判为重复。
+     */
+    public void recordPersisted(List<LogEntry> entries) {
+        if (!enabled || entries.isEmpty()) {
+            return;
+        }
+        for (LogEntry entry : entries) {
+            if (!entry.isUnparsed()) {
+                current.put(keyHash(entry));
+            }
+        }
+        synchronized (this) {
+            currentInsertions += entries.size();
+            if (currentInsertions >= expectedInsertions) {
+                previous = current;
+                current = BloomFilter.create(expectedInsertions, fpp);
+                currentInsertions = 0;
+                log.info("日志去重预过滤器完成一次轮换");
+            }
+        }
+    }
+
+    // 与 web_log_entries 的唯一约束 (idAddress, timestamp, method, path) 保持一致
+    private static long keyHash(LogEntry entry) {
+        long hash = Hashing.mix(Hashing.SEED, entry.getIdAddress());
+        LocalDateTime timestamp = entry.getTimestamp();
+        hash = Hashing.mix(hash, timestamp == null ? 0L : timestamp.toLocalDate().toEpochDay());
+        hash = Hashing.mix(hash, timestamp == null ? 0L : timestamp.toLocalTime().toNanoOfDay());
+        hash = Hashing.mix(hash, entry.getMethod());
+        return Hashing.mix(hash, entry.getPath());
+    }
+}
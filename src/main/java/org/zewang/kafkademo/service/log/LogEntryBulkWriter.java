@@ -0,0 +1,93 @@
+package org.zewang.kafkademo.service.log;
+
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.zewang.kafkademo.entity.LogEntry;
+import org.zewang.kafkademo.repository.LogEntryRepository;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 日志批量写入服务，先经过进程内预过滤，再以容忍重复的方式批量写入 MySQL
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/18 15:30
+ */
+
+@Slf4j
+@Service
+public class LogEntryBulkWriter {
+
+    private final LogEntryRepository logEntryRepository;
+    private final LogDuplicateFilter duplicateFilter;
+    private final LogRollupAggregator logRollupAggregator;
+    private final OriginalMessageStoragePolicy originalMessageStoragePolicy;
+    private final boolean insertIgnore;
+
+    private final Counter insertedCounter;
+    private final Counter prefilterDuplicateCounter;
+    private final Counter databaseDuplicateCounter;
+
+    public LogEntryBulkWriter(LogEntryRepository logEntryRepository,
+        LogDuplicateFilter duplicateFilter,
+        LogRollupAggregator logRollupAggregator,
+        OriginalMessageStoragePolicy originalMessageStoragePolicy,
+        MeterRegistry meterRegistry,
+        @Value("${kafka.log-consumer.insert-ignore:true}") boolean insertIgnore) {
+        this.logEntryRepository = logEntryRepository;
+        this.duplicateFilter = duplicateFilter;
+        this.logRollupAggregator = logRollupAggregator;
+        this.originalMessageStoragePolicy = originalMessageStoragePolicy;
+        this.insertIgnore = insertIgnore;
+        this.insertedCounter = Counter.builder("log.ingest.inserted")
+            .description("成功写入 MySQL 的日志条数")
+            .register(meterRegistry);
+        this.prefilterDuplicateCounter = Counter.builder("log.ingest.duplicates")
+            .description("被判定为重复投递的日志条数")
+            .tag("stage", "prefilter")
+            .register(meterRegistry);
+        this.databaseDuplicateCounter = Counter.builder("log.ingest.duplicates")
+            .description("被判定为重复投递的日志条数")
+            .tag("stage", "database")
+            .register(meterRegistry);
+    }
+
+    /**
+     * 批量写入日志
+     * @param entries 解析成功的日志记录
+     * @return 实际插入的行数
+     */
+    public int write(List<LogEntry> entries) {
+        List<LogEntry> candidates = duplicateFilter.filterSeen(entries);
+        int prefiltered = entries.size() - candidates.size();
+        if (prefiltered > 0) {
+            prefilterDuplicateCounter.increment(prefiltered);
+        }
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+
+        originalMessageStoragePolicy.apply(candidates);
+        int inserted = insertIgnore
+            ? logEntryRepository.insertIgnoringDuplicates(candidates)
+            : logEntryRepository.batchInsert(candidates);
+
+        insertedCounter.increment(inserted);
+        int databaseDuplicates = candidates.size() - inserted;
+        if (databaseDuplicates > 0) {
+            databaseDuplicateCounter.increment(databaseDuplicates);
+        }
+
+        // 写库成功后再登记到预过滤器
+        duplicateFilter.recordPersisted(candidates);
+        // 汇总只统计通过预过滤的日志；数据库判定的重复（通常来自重启后的重放）无法逐行区分，会被计入
+        logRollupAggregator.record(candidates);
+        log.debug("日志批量写入完成: 总数={}, 预过滤重复={}, 数据库重复={}, 插入={}",
+            entries.size(), prefiltered, databaseDuplicates, inserted);
+        return inserted;
+    }
+}
@@ -0,0 +1,111 @@
+package org.zewang.kafkademo.service.log;
+
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 日志解析线程池：把一个 poll 批次切成若干段并行解析，再按原顺序拼回，
+ *               同一分区的记录交给持久化时仍保持 offset 顺序，吞吐随 CPU 核数而不是分区数扩展
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/18 20:00
+ */
+
+@Slf4j
+@Component
+public class LogParsePool {
+
+    private final boolean enabled;
+    private final int chunkSize;
+    private final int parallelism;
+    private final ExecutorService executor;
+
+    public LogParsePool(
+        @Value("${kafka.log-consumer.parse.parallel:true}") boolean enabled,
+        @Value("${kafka.log-consumer.parse.executor:virtual}") String executorType,
+        @Value("${kafka.log-consumer.parse.threads:0}") int threads,
+        @Value("${kafka.log-consumer.parse.chunk-size:64}") int chunkSize) {
+        this.enabled = enabled;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.parallelism = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = enabled ? createExecutor(executorType, parallelism) : null;
+        if (enabled) {
+            log.info("日志并行解析已启用: executor={}, threads={}, chunkSize={}",
+                executorType, parallelism, this.chunkSize);
+        }
+    }
+
+    /**
+     * 对 items 逐个执行 mapper，返回与 items 一一对应、顺序相同的结果。
+     * 批次不足两段或单核时直接在调用线程上执行，省去线程切换。
+     */
+    public <T, R> List<R> mapOrdered(List<T> items, Function<? super T, ? extends R> mapper) {
+        if (!enabled || parallelism < 2 || items.size() < chunkSize * 2) {
+            return mapRange(items, 0, items.size(), mapper);
+        }
+
+        List<CompletableFuture<List<R>>> chunks = new ArrayList<>((items.size() + chunkSize - 1) / chunkSize);
+        for (int from = 0; from < items.size(); from += chunkSize) {
+            int start = from;
+            int end = Math.min(from + chunkSize, items.size());
+            chunks.add(CompletableFuture.supplyAsync(() -> mapRange(items, start, end, mapper), executor));
+        }
+
+        // 按提交顺序依次 join，保证结果顺序与输入一致
+        List<R> results = new ArrayList<>(items.size());
+        for (CompletableFuture<List<R>> chunk : chunks) {
+            results.addAll(chunk.join());
+        }
+        return results;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (executor != null) {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private static <T, R> List<R> mapRange(List<T> items, int from, int to,
+        Function<? super T, ? extends R> mapper) {
+        List<R> results = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            results.add(mapper.apply(items.get(i)));
+        }
+        return results;
+    }
+
+    // virtual：每段一个虚拟线程，由 JVM 的载体线程池（默认等于核数）调度；fixed：固定大小的平台线程池
+    private static ExecutorService createExecutor(String executorType, int parallelism) {
+        return switch (executorType.trim().toLowerCase(Locale.ROOT)) {
+            case "virtual" -> Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("log-parse-", 0).factory());
+            case "fixed" -> Executors.newFixedThreadPool(parallelism, platformThreadFactory());
+            default -> throw new IllegalArgumentException("不支持的解析线程池类型: " + executorType);
+        };
+    }
+
+    private static ThreadFactory platformThreadFactory() {
+        AtomicInteger sequence = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "log-parse-" + sequence.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,56 @@
+package org.zewang.kafkademo.service.log;
+
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.zewang.kafkademo.entity.LogEntry;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 启动后回填 path_key 列：该列加入之前写入的日志 path_key 为空，路径前缀查询走 path_key 索引时会漏掉它们。
+ *               在后台线程中分批 UPDATE，每批只锁少量行，不阻塞启动和日志写入；全部回填后每次启动只执行一次空查询
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/19 05:30
+ */
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LogPathKeyBackfill implements ApplicationRunner {
+
+    private static final int BATCH_SIZE = 5000;
+    private static final String BACKFILL_SQL = "UPDATE web_log_entries SET path_key = LEFT(path, "
+        + LogEntry.PATH_KEY_LENGTH + ") WHERE path_key IS NULL AND path IS NOT NULL LIMIT " + BATCH_SIZE;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Thread worker = new Thread(this::backfill, "log-path-key-backfill");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void backfill() {
+        long total = 0;
+        try {
+            int updated;
+            do {
+                updated = jdbcTemplate.update(BACKFILL_SQL);
+                total += updated;
+            } while (updated == BATCH_SIZE);
+        } catch (Exception e) {
+            // 下次启动会继续回填剩余的行
+            log.warn("path_key 回填中断: 已回填 {} 行 | Error: {}", total, e.getMessage());
+            return;
+        }
+        if (total > 0) {
+            log.info("path_key 回填完成: {} 行", total);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package org.zewang.kafkademo.service.log;
+
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.zewang.kafkademo.entity.LogEntry;
+import org.zewang.kafkademo.util.LogMessageCompressor;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: web_log_entries 查询服务：按 (timestamp, id) 倒序做 keyset 分页，结果逐行写成 JSON 输出，
+ *               深翻页的代价与第一页相同，堆内存占用与页大小无关
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/18 21:00
+ */
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LogQueryService {
+
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 5000;
+
+    private static final String BASE_COLUMNS =
+        "id, timestamp, id_address, method, path, status_code, response_time_ms, user_agent";
+    private static final String RAW_COLUMNS = ", original_message, original_message_compressed";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 查询条件，除 limit 外都可以为空
+     * @param cursor 上一页返回的 nextCursor，为空时从最新的日志开始
+     */
+    public record Criteria(LocalDateTime from, LocalDateTime to, Integer statusCode, String pathPrefix,
+                           String ip, String cursor, int limit, boolean includeRaw) {
+    }
+
+    // 分页游标：上一页最后一行的 (timestamp, id)
+    private record Cursor(LocalDateTime timestamp, long id) {
+    }
+
+    /**
+     * 校验查询条件，在开始输出响应之前发现错误
+     * @throws IllegalArgumentException 游标或分页大小不合法
+     */
+    public void validate(Criteria criteria) {
+        if (criteria.limit() < 1 || criteria.limit() > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit 必须在 1 到 " + MAX_LIMIT + " 之间");
+        }
+        decodeCursor(criteria.cursor());
+    }
+
+    /**
+     * 执行查询并把结果以 {"items":[...],"count":n,"nextCursor":"..."} 的格式写入 out。
+     * 使用 MySQL 流式结果集，行从数据库读出后立刻写出，不在内存中攒整页数据。
+     */
+    public void stream(Criteria criteria, OutputStream out) throws IOException {
+        List<Object> args = new ArrayList<>();
+        String sql = buildSql(criteria, args);
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            // 输出流由 Spring MVC 负责关闭
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("items");
+
+            long start = System.currentTimeMillis();
+            RowWriter rowWriter = new RowWriter(generator, criteria.includeRaw());
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+                // Connector/J 只有在 fetchSize 为 Integer.MIN_VALUE 时才逐行流式读取
+                ps.setFetchSize(Integer.MIN_VALUE);
+                for (int i = 0; i < args.size(); i++) {
+                    ps.setObject(i + 1, args.get(i));
+                }
+                return ps;
+            }, rowWriter);
+
+            generator.writeEndArray();
+            generator.writeNumberField("count", rowWriter.count);
+            // 不足一页说明已经到底，没有下一页
+            generator.writeStringField("nextCursor", rowWriter.count == criteria.limit()
+                ? encodeCursor(rowWriter.lastTimestamp, rowWriter.lastId) : null);
+            generator.writeEndObject();
+            log.debug("日志查询完成: rows={}, 耗时={}ms", rowWriter.count, System.currentTimeMillis() - start);
+        }
+    }
+
+    private String buildSql(Criteria criteria, List<Object> args) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(BASE_COLUMNS);
+        if (criteria.includeRaw()) {
+            sql.append(RAW_COLUMNS);
+        }
+        sql.append(" FROM web_log_entries WHERE 1 = 1");
+
+        if (criteria.from() != null) {
+            sql.append(" AND timestamp >= ?");
+            args.add(Timestamp.valueOf(criteria.from()));
+        }
+        if (criteria.to() != null) {
+            sql.append(" AND timestamp < ?");
+            args.add(Timestamp.valueOf(criteria.to()));
+        }
+        if (criteria.statusCode() != null) {
+            sql.append(" AND status_code = ?");
+            args.add(criteria.statusCode());
+        }
+        if (criteria.ip() != null && !criteria.ip().isEmpty()) {
+            sql.append(" AND id_address = ?");
+            args.add(criteria.ip());
+        }
+        if (criteria.pathPrefix() != null && !criteria.pathPrefix().isEmpty()) {
+            // 前缀范围扫描走 path_key 索引；超过 path_key 长度的部分再用 path 精确过滤
+            String prefix = criteria.pathPrefix();
+            sql.append(" AND path_key LIKE ? ESCAPE '!'");
+            args.add(escapeLike(LogEntry.pathKeyOf(prefix)) + "%");
+            if (prefix.length() > LogEntry.PATH_KEY_LENGTH) {
+                sql.append(" AND path LIKE ? ESCAPE '!'");
+                args.add(escapeLike(prefix) + "%");
+            }
+        }
+
+        Cursor cursor = decodeCursor(criteria.cursor());
+        if (cursor != null) {
+            // 展开写法而不是行构造器 (timestamp, id) < (?, ?)，保证能用上以 timestamp, id 结尾的索引
+            sql.append(" AND (timestamp < ? OR (timestamp = ? AND id < ?))");
+            Timestamp timestamp = Timestamp.valueOf(cursor.timestamp());
+            args.add(timestamp);
+            args.add(timestamp);
+            args.add(cursor.id());
+        }
+
+        sql.append(" ORDER BY timestamp DESC, id DESC LIMIT ?");
+        args.add(criteria.limit());
+        return sql.toString();
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+
+    private static String encodeCursor(LocalDateTime timestamp, long id) {
+        String raw = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Cursor decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new Cursor(LocalDateTime.parse(raw.substring(0, separator)),
+                Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("无效的分页游标: " + cursor);
+        }
+    }
+
+    // 逐行写出 JSON，同时记住最后一行用于生成下一页游标
+    private static final class RowWriter implements RowCallbackHandler {
+
+        private final JsonGenerator generator;
+        private final boolean includeRaw;
+        private int count;
+        private LocalDateTime lastTimestamp;
+        private long lastId;
+
+        private RowWriter(JsonGenerator generator, boolean includeRaw) {
+            this.generator = generator;
+            this.includeRaw = includeRaw;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            lastId = rs.getLong("id");
+            lastTimestamp = rs.getTimestamp("timestamp").toLocalDateTime();
+            try {
+                generator.writeStartObject();
+                generator.writeNumberField("id", lastId);
+                generator.writeStringField("timestamp", lastTimestamp.toString());
+                generator.writeStringField("ip", rs.getString("id_address"));
+                generator.writeStringField("method", rs.getString("method"));
+                generator.writeStringField("path", rs.getString("path"));
+                generator.writeNumberField("statusCode", rs.getInt("status_code"));
+                generator.writeNumberField("responseTimeMs", rs.getLong("response_time_ms"));
+                generator.writeStringField("userAgent", rs.getString("user_agent"));
+                if (includeRaw) {
+                    String original = rs.getString("original_message");
+                    byte[] compressed = rs.getBytes("original_message_compressed");
+                    if (original == null && compressed != null) {
+                        original = LogMessageCompressor.decompress(compressed);
+                    }
+                    generator.writeStringField("originalMessage", original);
+                }
+                generator.writeEndObject();
+            } catch (IOException e) {
+                // 客户端断开等写出错误，终止查询
+                throw new UncheckedIOException(e);
+            }
+            count++;
+        }
+    }
+}
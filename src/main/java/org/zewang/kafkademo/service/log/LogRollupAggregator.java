@@ -0,0 +1,188 @@
+package org.zewang.kafkademo.service.log;
+
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.zewang.kafkademo.entity.LogEntry;
+import org.zewang.kafkademo.entity.LogRollup;
+import org.zewang.kafkademo.util.LatencySketch;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 在日志写入链路上实时维护 (分钟, 路径, 状态码类别) 的内存汇总，定时合并到 web_log_rollups 表
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/18 17:00
+ */
+
+@Slf4j
+@Service
+public class LogRollupAggregator {
+
+    // 单个刷新周期内同一分钟的汇总键超过上限后，新出现的路径统一归入该路径
+    public static final String OVERFLOW_PATH = "__other__";
+    private static final int MAX_PATH_LENGTH = 191;
+
+    private final LogRollupStore logRollupStore;
+    private final boolean enabled;
+    private final int maxKeysPerMinute;
+
+    private final ConcurrentMap<RollupKey, RollupCell> cells = new ConcurrentHashMap<>();
+    private final ConcurrentMap<LocalDateTime, AtomicInteger> keysPerMinute = new ConcurrentHashMap<>();
+    private final Counter overflowCounter;
+
+    public LogRollupAggregator(LogRollupStore logRollupStore,
+        MeterRegistry meterRegistry,
+        @Value("${kafka.log-consumer.rollup.enabled:true}") boolean enabled,
+        @Value("${kafka.log-consumer.rollup.max-keys-per-minute:2000}") int maxKeysPerMinute) {
+        this.logRollupStore = logRollupStore;
+        this.enabled = enabled;
+        this.maxKeysPerMinute = maxKeysPerMinute;
+        this.overflowCounter = Counter.builder("log.rollup.overflow")
+            .description("因路径过多被归入 " + OVERFLOW_PATH + " 的日志条数")
+            .register(meterRegistry);
+    }
+
+    /**
+     * 把已经落库的日志计入内存汇总
+     */
+    public void record(List<LogEntry> entries) {
+        if (!enabled) {
+            return;
+        }
+        for (LogEntry entry : entries) {
+            if (entry.isUnparsed()) {
+                continue;
+            }
+            RollupKey key = admit(keyOf(entry));
+            long latencyMs = entry.getResponseTimeMs();
+            accumulate(key, cell -> cell.add(latencyMs));
+        }
+    }
+
+    /**
+     * 定时把内存汇总合并到数据库；写库失败时把本轮数据放回内存，下一轮再试
+     */
+    @Scheduled(fixedDelayString = "${kafka.log-consumer.rollup.flush-interval-ms:10000}",
+        initialDelayString = "${kafka.log-consumer.rollup.flush-interval-ms:10000}")
+    public void flush() {
+        if (!enabled || cells.isEmpty()) {
+            return;
+        }
+        keysPerMinute.clear();
+
+        List<LogRollup> deltas = new ArrayList<>(cells.size());
+        for (RollupKey key : cells.keySet()) {
+            RollupCell cell = cells.remove(key);
+            if (cell == null) {
+                continue;
+            }
+            // 关闭后其他线程不会再修改这个 cell，而是创建新的 cell
+            synchronized (cell) {
+                cell.closed = true;
+            }
+            deltas.add(cell.toDelta(key));
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            logRollupStore.mergeAll(deltas);
+            log.debug("日志汇总刷新完成: rows={}, 耗时={}ms", deltas.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("日志汇总刷新失败，数据放回内存等待下一轮: rows={} | Error: {}", deltas.size(), e.getMessage());
+            for (LogRollup delta : deltas) {
+                RollupKey key = new RollupKey(delta.getBucketMinute(), delta.getPath(), delta.getStatusClass());
+                accumulate(key, cell -> cell.merge(delta));
+            }
+        }
+    }
+
+    private void accumulate(RollupKey key, Consumer<RollupCell> update) {
+        while (true) {
+            RollupCell cell = cells.computeIfAbsent(key, k -> new RollupCell());
+            synchronized (cell) {
+                if (!cell.closed) {
+                    update.accept(cell);
+                    return;
+                }
+            }
+            // cell 刚被 flush 取走，重新创建
+        }
+    }
+
+    // 限制每分钟的汇总键数量，防止带 ID 的路径把内存和汇总表撑大
+    private RollupKey admit(RollupKey key) {
+        if (cells.containsKey(key)) {
+            return key;
+        }
+        AtomicInteger admitted = keysPerMinute.computeIfAbsent(key.bucketMinute(), m -> new AtomicInteger());
+        if (admitted.incrementAndGet() <= maxKeysPerMinute) {
+            return key;
+        }
+        overflowCounter.increment();
+        return new RollupKey(key.bucketMinute(), OVERFLOW_PATH, key.statusClass());
+    }
+
+    private static RollupKey keyOf(LogEntry entry) {
+        return new RollupKey(entry.getTimestamp().truncatedTo(ChronoUnit.MINUTES),
+            normalizePath(entry.getPath()),
+            Math.max(0, Math.min(9, entry.getStatusCode() / 100)));
+    }
+
+    // 去掉查询参数并截断到索引允许的长度
+    private static String normalizePath(String path) {
+        if (path == null || path.isEmpty()) {
+            return "/";
+        }
+        int query = path.indexOf('?');
+        String normalized = query >= 0 ? path.substring(0, query) : path;
+        return normalized.length() > MAX_PATH_LENGTH ? normalized.substring(0, MAX_PATH_LENGTH) : normalized;
+    }
+
+    private record RollupKey(LocalDateTime bucketMinute, String path, int statusClass) {
+    }
+
+    private static final class RollupCell {
+
+        private final LatencySketch sketch = new LatencySketch();
+        private long latencySumMs;
+        private long latencyMaxMs;
+        private boolean closed;
+
+        private void add(long latencyMs) {
+            sketch.add(latencyMs);
+            latencySumMs += latencyMs;
+            latencyMaxMs = Math.max(latencyMaxMs, latencyMs);
+        }
+
+        private void merge(LogRollup delta) {
+            sketch.merge(LatencySketch.fromBytes(delta.getLatencySketch()));
+            latencySumMs += delta.getLatencySumMs();
+            latencyMaxMs = Math.max(latencyMaxMs, delta.getLatencyMaxMs());
+        }
+
+        private LogRollup toDelta(RollupKey key) {
+            LogRollup delta = new LogRollup();
+            delta.setBucketMinute(key.bucketMinute());
+            delta.setPath(key.path());
+            delta.setStatusClass(key.statusClass());
+            delta.setRequestCount(sketch.count());
+            delta.setLatencySumMs(latencySumMs);
+            delta.setLatencyMaxMs(latencyMaxMs);
+            delta.setLatencySketch(sketch.toBytes());
+            return delta;
+        }
+    }
+}
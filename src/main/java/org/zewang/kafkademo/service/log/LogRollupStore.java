@@ -0,0 +1,118 @@
+package org.zewang.kafkademo.service.log;
+
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.zewang.kafkademo.entity.LogRollup;
+import org.zewang.kafkademo.repository.LogRollupRepository;
+import org.zewang.kafkademo.util.LatencySketch;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: web_log_rollups 汇总表的读写：把内存增量合并到已有行，并按任意时间范围合并分位数草图
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/18 17:00
+ */
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LogRollupStore {
+
+    private static final Comparator<LogRollup> MERGE_ORDER = Comparator
+        .comparing(LogRollup::getBucketMinute)
+        .thenComparing(LogRollup::getPath)
+        .thenComparingInt(LogRollup::getStatusClass);
+
+    private final LogRollupRepository logRollupRepository;
+
+    /**
+     * 把一轮内存增量合并到汇总表，同一行已存在时累加计数并合并草图。
+     * 先插入缺失的空行，再逐行加行锁读-改-写，多个消费者实例同时刷新同一行时不会互相覆盖；
+     * 按键排序加锁，避免两个实例以相反顺序锁行而死锁。失败时整个事务回滚，由调用方放回内存下一轮重试
+     */
+    @Transactional
+    public void mergeAll(List<LogRollup> deltas) {
+        List<LogRollup> ordered = new ArrayList<>(deltas);
+        ordered.sort(MERGE_ORDER);
+        for (LogRollup delta : ordered) {
+            logRollupRepository.insertEmptyIfAbsent(delta.getBucketMinute(), delta.getPath(), delta.getStatusClass());
+        }
+        for (LogRollup delta : ordered) {
+            LogRollup row = logRollupRepository
+                .findForUpdateByBucketMinuteAndPathAndStatusClass(delta.getBucketMinute(), delta.getPath(),
+                    delta.getStatusClass())
+                .orElseThrow(() -> new IllegalStateException("汇总行不存在: " + delta.getBucketMinute()
+                    + " " + delta.getPath() + " " + delta.getStatusClass()));
+            LatencySketch sketch = LatencySketch.fromBytes(delta.getLatencySketch());
+            sketch.merge(LatencySketch.fromBytes(row.getLatencySketch()));
+            row.setRequestCount(row.getRequestCount() + delta.getRequestCount());
+            row.setLatencySumMs(row.getLatencySumMs() + delta.getLatencySumMs());
+            row.setLatencyMaxMs(Math.max(row.getLatencyMaxMs(), delta.getLatencyMaxMs()));
+            applySketch(row, sketch);
+            logRollupRepository.save(row);
+        }
+    }
+
+    /**
+     * 汇总 [from, to) 内的访问情况，按状态码类别分组
+     * @param path 请求路径，为空时汇总所有路径
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> summarize(String path, LocalDateTime from, LocalDateTime to) {
+        List<LogRollup> rows = path == null || path.isEmpty()
+            ? logRollupRepository.findByBucketMinuteGreaterThanEqualAndBucketMinuteLessThan(from, to)
+            : logRollupRepository.findByPathAndBucketMinuteGreaterThanEqualAndBucketMinuteLessThan(path, from, to);
+
+        Map<Integer, LatencySketch> sketches = new TreeMap<>();
+        Map<Integer, long[]> totals = new TreeMap<>(); // [count, sum, max]
+        for (LogRollup row : rows) {
+            sketches.computeIfAbsent(row.getStatusClass(), c -> new LatencySketch())
+                .merge(LatencySketch.fromBytes(row.getLatencySketch()));
+            long[] total = totals.computeIfAbsent(row.getStatusClass(), c -> new long[3]);
+            total[0] += row.getRequestCount();
+            total[1] += row.getLatencySumMs();
+            total[2] = Math.max(total[2], row.getLatencyMaxMs());
+        }
+
+        List<Map<String, Object>> byStatusClass = new ArrayList<>();
+        sketches.forEach((statusClass, sketch) -> {
+            long[] total = totals.get(statusClass);
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("statusClass", statusClass + "xx");
+            item.put("requestCount", total[0]);
+            item.put("avgResponseTimeMs", total[0] == 0 ? 0 : total[1] / total[0]);
+            item.put("maxResponseTimeMs", total[2]);
+            item.put("p50Ms", sketch.quantile(0.50));
+            item.put("p95Ms", sketch.quantile(0.95));
+            item.put("p99Ms", sketch.quantile(0.99));
+            byStatusClass.add(item);
+        });
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("path", path);
+        result.put("from", from);
+        result.put("to", to);
+        result.put("rowsScanned", rows.size());
+        result.put("relativeAccuracy", LatencySketch.RELATIVE_ACCURACY);
+        result.put("byStatusClass", byStatusClass);
+        return result;
+    }
+
+    private static void applySketch(LogRollup row, LatencySketch sketch) {
+        row.setLatencySketch(sketch.toBytes());
+        row.setP50Ms(sketch.quantile(0.50));
+        row.setP95Ms(sketch.quantile(0.95));
+        row.setP99Ms(sketch.quantile(0.99));
+    }
+}
@@ -0,0 +1,296 @@
+package org.zewang.kafkademo.service.log;
+
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Service;
+import org.zewang.kafkademo.consumer.support.ContiguousOffsetTracker;
+import org.zewang.kafkademo.consumer.support.ContiguousOffsetTracker.Segment;
+import org.zewang.kafkademo.consumer.support.ListenerPauseSwitch;
+import org.zewang.kafkademo.entity.LogEntry;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 日志 write-behind 缓冲区：poll 线程只负责解析和入队，由独立的写线程批量写入 MySQL；
+ *               offset 只提交到每个分区连续落库的位置，进程崩溃时未落库的日志会被重新消费。
+ *               队列积压到上限时暂停监听容器而不是阻塞 poll 线程，写库多次失败的批次转入死信主题
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/18 16:00
+ */
+
+@Slf4j
+@Service
+public class LogWriteBehindBuffer implements ConsumerAwareRebalanceListener {
+
+    // 与 @KafkaListener 的 id 保持一致，用于过滤空闲事件
+    public static final String LISTENER_ID = "web-logs-write-behind";
+
+    private final LogEntryBulkWriter logEntryBulkWriter;
+    private final KafkaTemplate<String, String> deadLetterTemplate;
+    private final ListenerPauseSwitch pauseSwitch;
+    private final ContiguousOffsetTracker offsetTracker = new ContiguousOffsetTracker();
+    // 不设容量上限，由暂停拉取控制积压：暂停生效前每个消费者线程最多再入队一个批次
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    private final AtomicInteger queuedEntries = new AtomicInteger();
+    private final Timer flushTimer;
+
+    private final int queueCapacity;
+    private final int resumeThreshold;
+    private final int writerThreads;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final int maxAttempts;
+    private final String deadLetterTopic;
+    private final long revokeTimeoutMs;
+
+    private final List<Thread> writers = new ArrayList<>();
+    private volatile boolean running;
+
+    public LogWriteBehindBuffer(LogEntryBulkWriter logEntryBulkWriter,
+        @Qualifier("kafkaTemplateAcksAll") KafkaTemplate<String, String> deadLetterTemplate,
+        KafkaListenerEndpointRegistry listenerEndpointRegistry,
+        MeterRegistry meterRegistry,
+        @Value("${kafka.log-consumer.write-behind.queue-capacity:64}") int queueCapacity,
+        @Value("${kafka.log-consumer.write-behind.resume-threshold:16}") int resumeThreshold,
+        @Value("${kafka.log-consumer.write-behind.writer-threads:2}") int writerThreads,
+        @Value("${kafka.log-consumer.write-behind.initial-backoff-ms:200}") long initialBackoffMs,
+        @Value("${kafka.log-consumer.write-behind.max-backoff-ms:10000}") long maxBackoffMs,
+        @Value("${kafka.log-consumer.write-behind.max-attempts:10}") int maxAttempts,
+        @Value("${kafka.log-consumer.write-behind.dead-letter-topic:web-logs-dlt}") String deadLetterTopic,
+        @Value("${kafka.log-consumer.write-behind.revoke-timeout-ms:30000}") long revokeTimeoutMs) {
+        this.logEntryBulkWriter = logEntryBulkWriter;
+        this.deadLetterTemplate = deadLetterTemplate;
+        this.pauseSwitch = new ListenerPauseSwitch(listenerEndpointRegistry, LISTENER_ID);
+        this.queueCapacity = queueCapacity;
+        this.resumeThreshold = Math.min(resumeThreshold, queueCapacity - 1);
+        this.writerThreads = writerThreads;
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.deadLetterTopic = deadLetterTopic;
+        this.revokeTimeoutMs = revokeTimeoutMs;
+
+        Gauge.builder("log.ingest.queue.depth", queuedEntries, AtomicInteger::get)
+            .description("write-behind 队列中等待写入的日志条数")
+            .register(meterRegistry);
+        Gauge.builder("log.ingest.pending.segments", offsetTracker, ContiguousOffsetTracker::pendingSegments)
+            .description("尚未落库、offset 不能提交的批次区间个数")
+            .register(meterRegistry);
+        this.flushTimer = Timer.builder("log.ingest.flush.time")
+            .description("write-behind 写线程单次批量写库耗时（包含重试）")
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        for (int i = 0; i < writerThreads; i++) {
+            Thread writer = new Thread(this::drainLoop, "log-write-behind-" + i);
+            writer.setDaemon(true);
+            writer.start();
+            writers.add(writer);
+        }
+        log.info("日志 write-behind 写线程已启动: writerThreads={}, queueCapacity={}, resumeThreshold={}",
+            writerThreads, queueCapacity, resumeThreshold);
+    }
+
+    /**
+     * 提交一个 poll 批次。为批次内每个分区登记一段 offset 区间，然后入队，不阻塞调用线程；
+     * 队列中的批次数达到 queue-capacity 时暂停监听容器，写线程消化到 resume-threshold 以下再恢复。
+     * @param records 本批次的全部记录（包括解析失败被跳过的记录，它们的 offset 同样需要推进）
+     * @param entries 解析成功的日志
+     */
+    public void submit(List<? extends ConsumerRecord<?, ?>> records, List<LogEntry> entries) {
+        List<Segment> segments = beginSegments(records);
+        if (entries.isEmpty()) {
+            segments.forEach(Segment::complete);
+            return;
+        }
+
+        queuedEntries.addAndGet(entries.size());
+        queue.add(new PendingWrite(List.copyOf(records), entries, segments));
+        pauseSwitch.pauseIf(() -> queue.size() >= queueCapacity,
+            () -> "write-behind 队列积压 " + queue.size() + " 个批次, queuedEntries=" + queuedEntries.get());
+    }
+
+    /**
+     * 在 poll 线程上提交当前消费者负责的分区中已经连续落库的 offset
+     */
+    public void commitPersisted(Consumer<?, ?> consumer) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = offsetTracker.committableOffsets(consumer.assignment());
+        if (offsets.isEmpty()) {
+            return;
+        }
+        try {
+            consumer.commitSync(offsets);
+            offsetTracker.markCommitted(offsets);
+            log.debug("提交已落库的 offset: {}", offsets);
+        } catch (KafkaException e) {
+            // 下一轮 poll 或空闲事件会再次尝试提交
+            log.warn("提交 offset 失败，稍后重试: {} | Error: {}", offsets, e.getMessage());
+        }
+    }
+
+    /**
+     * 监听器空闲时没有新批次触发提交，由空闲事件补上，避免最后一批日志的 offset 长时间不提交
+     */
+    @EventListener(condition = "event.listenerId.startsWith('" + LISTENER_ID + "')")
+    public void onIdle(ListenerContainerIdleEvent event) {
+        commitPersisted(event.getConsumer());
+    }
+
+    /**
+     * 分区被回收前等待其在途日志落库并提交，新的消费者可以从准确的位置继续
+     */
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        try {
+            if (!offsetTracker.awaitCompletion(partitions, revokeTimeoutMs)) {
+                // 未落库的部分由新的消费者重新消费，重复写入由唯一约束兜底
+                log.warn("分区回收前等待写库超时，未完成部分将被重新消费: partitions={}", partitions);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        commitPersisted(consumer);
+        offsetTracker.remove(partitions);
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        // 分区已经属于其他消费者，不能再提交
+        offsetTracker.remove(partitions);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Thread writer : writers) {
+            writer.join(revokeTimeoutMs);
+            if (writer.isAlive()) {
+                writer.interrupt();
+            }
+        }
+        log.info("日志 write-behind 写线程已停止: 剩余未写入日志={}", queuedEntries.get());
+    }
+
+    private List<Segment> beginSegments(List<? extends ConsumerRecord<?, ?>> records) {
+        // 同一批次内同一分区的 offset 是递增的，取首尾即可
+        Map<TopicPartition, long[]> ranges = new LinkedHashMap<>();
+        for (ConsumerRecord<?, ?> record : records) {
+            long[] range = ranges.computeIfAbsent(new TopicPartition(record.topic(), record.partition()),
+                tp -> new long[] {record.offset(), record.offset()});
+            range[1] = record.offset();
+        }
+        List<Segment> segments = new ArrayList<>(ranges.size());
+        ranges.forEach((partition, range) -> segments.add(offsetTracker.begin(partition, range[0], range[1])));
+        return segments;
+    }
+
+    private void drainLoop() {
+        // 停止时先把队列中剩余的日志写完
+        while (running || !queue.isEmpty()) {
+            PendingWrite pending;
+            try {
+                pending = queue.poll(500, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            // 队列为空、poll 超时返回时也要检查，暂停请求可能晚于上一次检查才生效
+            pauseSwitch.resumeIf(() -> queue.size() <= resumeThreshold);
+            if (pending == null) {
+                continue;
+            }
+            queuedEntries.addAndGet(-pending.entries().size());
+            if (!writeWithRetry(pending)) {
+                return;
+            }
+            pending.segments().forEach(Segment::complete);
+        }
+    }
+
+    // 写库失败时按指数退避重试，max-attempts 次仍失败时把整批原始记录转入死信主题，
+    // 避免一个坏批次永远卡住分区的 offset；死信也发送失败时继续重试。被中断时放弃，对应 offset 不会提交
+    private boolean writeWithRetry(PendingWrite pending) {
+        List<LogEntry> entries = pending.entries();
+        long backoffMs = initialBackoffMs;
+        long start = System.nanoTime();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                logEntryBulkWriter.write(entries);
+                flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return true;
+            } catch (Exception e) {
+                log.warn("write-behind 写库失败，{} ms 后重试: attempt={}, entries={} | Error: {}",
+                    backoffMs, attempt, entries.size(), e.getMessage());
+            }
+            if (attempt >= maxAttempts && sendToDeadLetter(pending.records())) {
+                log.error("write-behind 写库失败 {} 次，整批 {} 条记录已转入死信主题 {}",
+                    attempt, pending.records().size(), deadLetterTopic);
+                return true;
+            }
+            try {
+                Thread.sleep(backoffMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            backoffMs = Math.min(backoffMs * 2, maxBackoffMs);
+        }
+    }
+
+    // 原始消息原样写入死信主题，修复后可以重新投递到 web-logs；等待全部确认后才推进 offset
+    private boolean sendToDeadLetter(List<ConsumerRecord<?, ?>> records) {
+        try {
+            List<CompletableFuture<?>> futures = new ArrayList<>(records.size());
+            for (ConsumerRecord<?, ?> record : records) {
+                Object value = record.value();
+                String payload = value instanceof byte[] bytes ? new String(bytes, StandardCharsets.UTF_8)
+                    : value != null ? value.toString() : null;
+                futures.add(deadLetterTemplate.send(deadLetterTopic,
+                    record.key() != null ? record.key().toString() : null, payload));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            log.error("write-behind 批次转入死信主题失败，继续重试写库 | Error: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private record PendingWrite(List<ConsumerRecord<?, ?>> records, List<LogEntry> entries, List<Segment> segments) {
+    }
+}
@@ -0,0 +1,90 @@
+package org.zewang.kafkademo.service.log;
+
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.zewang.kafkademo.entity.LogEntry;
+import org.zewang.kafkademo.util.LogMessageCompressor;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: LogEntry.originalMessage 的存储策略：解析完整的日志可以丢弃或压缩原文，部分解析和无法解析的日志总是保留原文
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/18 18:00
+ */
+
+@Slf4j
+@Component
+public class OriginalMessageStoragePolicy {
+
+    // 与 original_message_compressed 列的长度一致
+    private static final int MAX_COMPRESSED_BYTES = 4096;
+
+    public enum Mode {
+        KEEP,       // 原样保存
+        COMPRESS,   // 使用训练出的 zstd 字典压缩后保存，字典训练完成前保存原文
+        DROP        // 解析成功时不保存原文
+    }
+
+    private final Mode mode;
+    private final LogDictionaryTrainer dictionaryTrainer;
+    private final Counter rawBytesCounter;
+    private final Counter storedBytesCounter;
+
+    public OriginalMessageStoragePolicy(MeterRegistry meterRegistry, LogDictionaryTrainer dictionaryTrainer,
+        @Value("${kafka.log-consumer.original-message.storage:keep}") String mode) {
+        this.mode = Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        this.dictionaryTrainer = dictionaryTrainer;
+        this.rawBytesCounter = Counter.builder("log.original.message.bytes")
+            .description("日志原文的字节数")
+            .tag("form", "raw")
+            .register(meterRegistry);
+        this.storedBytesCounter = Counter.builder("log.original.message.bytes")
+            .description("日志原文的字节数")
+            .tag("form", "stored")
+            .register(meterRegistry);
+        log.info("日志原文存储策略: {}", this.mode);
+    }
+
+    /**
+     * 在写库前按策略改写 originalMessage / originalMessageCompressed
+     */
+    public void apply(List<LogEntry> entries) {
+        if (mode == Mode.KEEP) {
+            return;
+        }
+        long rawBytes = 0;
+        long storedBytes = 0;
+        for (LogEntry entry : entries) {
+            String message = entry.getOriginalMessage();
+            if (message == null || entry.isPartiallyParsed()) {
+                continue;
+            }
+            int length = message.getBytes(StandardCharsets.UTF_8).length;
+            rawBytes += length;
+            if (mode == Mode.DROP) {
+                entry.setOriginalMessage(null);
+                continue;
+            }
+            dictionaryTrainer.offerSample(message);
+            byte[] compressed = LogMessageCompressor.compress(message);
+            if (compressed != null && compressed.length <= MAX_COMPRESSED_BYTES) {
+                entry.setOriginalMessage(null);
+                entry.setOriginalMessageCompressed(compressed);
+                storedBytes += compressed.length;
+            } else {
+                // 字典尚未训练完成，或压缩后没有变小（或过长），保存原文
+                storedBytes += length;
+            }
+        }
+        rawBytesCounter.increment(rawBytes);
+        storedBytesCounter.increment(storedBytes);
+    }
+}
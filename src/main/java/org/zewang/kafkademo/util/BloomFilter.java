@@ -0,0 +1,97 @@
+package org.zewang.kafkademo.util;
+
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 线程安全的布隆过滤器，按期望元素数量和误判率计算位数组大小与哈希函数个数；
+ *               元素以 64 位哈希值的形式写入，k 个位置用双重哈希 h1 + i * h2 推导
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/18 15:00
+ */
+
+public class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitSize;
+    private final int hashCount;
+
+    private BloomFilter(long bitSize, int hashCount) {
+        long wordCount = (bitSize + 63) >>> 6;
+        if (wordCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("布隆过滤器过大: bits=" + bitSize);
+        }
+        this.words = new AtomicLongArray((int) wordCount);
+        this.bitSize = wordCount << 6;
+        this.hashCount = hashCount;
+    }
+
+    /**
+     * 创建布隆过滤器
+     * @param expectedInsertions 期望插入的元素个数
+     * @param fpp 期望的误判率，例如 0.000001
+     */
+    public static BloomFilter create(long expectedInsertions, double fpp) {
+        if (expectedInsertions <= 0 || fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("非法参数: expectedInsertions=" + expectedInsertions + ", fpp=" + fpp);
+        }
+        // m = -n * ln(p) / (ln2)^2, k = m / n * ln2
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        int hashes = Math.max(1, (int) Math.round((double) bits / expectedInsertions * Math.log(2)));
+        return new BloomFilter(Math.max(64, bits), hashes);
+    }
+
+    /**
+     * 写入一个 64 位哈希值
+     * @return true 表示至少有一位从 0 变成 1，即该元素之前一定不存在
+     */
+    public boolean put(long hash) {
+        long h2 = Hashing.fmix64(hash ^ Hashing.SEED);
+        boolean changed = false;
+        for (int i = 1; i <= hashCount; i++) {
+            long combined = (hash + i * h2) & Long.MAX_VALUE;
+            changed |= setBit(combined % bitSize);
+        }
+        return changed;
+    }
+
+    /**
+     * 判断元素是否可能存在。返回 false 时一定不存在，返回 true 时可能存在（存在误判）。
+     */
+    public boolean mightContain(long hash) {
+        long h2 = Hashing.fmix64(hash ^ Hashing.SEED);
+        for (int i = 1; i <= hashCount; i++) {
+            long combined = (hash + i * h2) & Long.MAX_VALUE;
+            if (!getBit(combined % bitSize)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 位数组占用的字节数
+     */
+    public long sizeInBytes() {
+        return bitSize >>> 3;
+    }
+
+    private boolean setBit(long index) {
+        int wordIndex = (int) (index >>> 6);
+        long mask = 1L << index;
+        long current;
+        do {
+            current = words.get(wordIndex);
+            if ((current & mask) != 0) {
+                return false;
+            }
+        } while (!words.compareAndSet(wordIndex, current, current | mask));
+        return true;
+    }
+
+    private boolean getBit(long index) {
+        return (words.get((int) (index >>> 6)) & (1L << index)) != 0;
+    }
+}
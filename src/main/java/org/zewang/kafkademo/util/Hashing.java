@@ -0,0 +1,50 @@
+package org.zewang.kafkademo.util;
+
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 64 位哈希工具，可以把多个字段依次混入同一个哈希值，避免先拼接成字符串
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/18 15:00
+ */
+
+public final class Hashing {
+
+    public static final long SEED = 0x9E3779B97F4A7C15L;
+
+    private Hashing() {
+    }
+
+    // 把一个字符串混入哈希值；null 与空串区分开
+    public static long mix(long hash, CharSequence value) {
+        if (value == null) {
+            return mix(hash, 0x5bd1e995L);
+        }
+        long h = hash;
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * 0x100000001B3L;
+        }
+        return fmix64(h ^ value.length());
+    }
+
+    // 把一个 long 混入哈希值
+    public static long mix(long hash, long value) {
+        return fmix64(hash ^ (value * 0xC2B2AE3D27D4EB4FL));
+    }
+
+    // 单个字符串的 64 位哈希
+    public static long hash64(CharSequence value) {
+        return mix(SEED, value);
+    }
+
+    // MurmurHash3 的 64 位 finalizer，让各个比特充分扩散
+    public static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xFF51AFD7ED558CCDL;
+        k ^= k >>> 33;
+        k *= 0xC4CEB9FE1A85EC53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
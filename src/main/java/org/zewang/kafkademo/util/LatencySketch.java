@@ -0,0 +1,147 @@
+package org.zewang.kafkademo.util;
+
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 可合并的延迟分位数草图（对数分桶，思路同 DDSketch）；
+ *               任意分位数的相对误差不超过 RELATIVE_ACCURACY，两个草图按桶相加即可合并
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/18 17:00
+ */
+
+public class LatencySketch {
+
+    // 相对误差 1%，所有草图必须使用同一个值才能合并
+    public static final double RELATIVE_ACCURACY = 0.01;
+
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    private static final byte FORMAT_VERSION = 1;
+
+    // 小于 1ms 的值单独计数，其余值 v 落在下标 ceil(log_gamma(v)) 的桶中
+    private long zeroCount;
+    private long[] counts = new long[0];
+    private long totalCount;
+
+    public void add(long valueMs) {
+        addCount(valueMs, 1);
+    }
+
+    public void merge(LatencySketch other) {
+        zeroCount += other.zeroCount;
+        ensureCapacity(other.counts.length);
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+    }
+
+    public long count() {
+        return totalCount;
+    }
+
+    /**
+     * 计算分位数
+     * @param quantile 0 到 1 之间，例如 0.99
+     * @return 分位数对应的毫秒值，草图为空时返回 0
+     */
+    public long quantile(double quantile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long rank = (long) (quantile * (totalCount - 1));
+        if (rank < zeroCount) {
+            return 0;
+        }
+        long seen = zeroCount;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen > rank) {
+                // 桶 (gamma^(i-1), gamma^i] 的代表值，保证相对误差不超过 RELATIVE_ACCURACY
+                return Math.round(2 * Math.pow(GAMMA, i) / (GAMMA + 1));
+            }
+        }
+        return Math.round(Math.pow(GAMMA, counts.length - 1));
+    }
+
+    /**
+     * 序列化为紧凑的字节数组：版本号 + 零值计数 + 非空桶的 (下标差, 计数) 对，均为 varint
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + counts.length);
+        out.write(FORMAT_VERSION);
+        writeVarLong(out, zeroCount);
+        int previous = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                writeVarLong(out, i - previous);
+                writeVarLong(out, counts[i]);
+                previous = i;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    public static LatencySketch fromBytes(byte[] bytes) {
+        LatencySketch sketch = new LatencySketch();
+        if (bytes == null || bytes.length == 0) {
+            return sketch;
+        }
+        if (bytes[0] != FORMAT_VERSION) {
+            throw new IllegalArgumentException("不支持的草图版本: " + bytes[0]);
+        }
+        int[] position = {1};
+        sketch.zeroCount = readVarLong(bytes, position);
+        sketch.totalCount = sketch.zeroCount;
+        int index = 0;
+        while (position[0] < bytes.length) {
+            index += (int) readVarLong(bytes, position);
+            long count = readVarLong(bytes, position);
+            sketch.ensureCapacity(index + 1);
+            sketch.counts[index] += count;
+            sketch.totalCount += count;
+        }
+        return sketch;
+    }
+
+    private void addCount(long valueMs, long count) {
+        totalCount += count;
+        if (valueMs < 1) {
+            zeroCount += count;
+            return;
+        }
+        int index = (int) Math.ceil(Math.log(valueMs) / LOG_GAMMA);
+        ensureCapacity(index + 1);
+        counts[index] += count;
+    }
+
+    private void ensureCapacity(int length) {
+        if (counts.length < length) {
+            counts = Arrays.copyOf(counts, Math.max(length, counts.length + (counts.length >> 1)));
+        }
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(byte[] bytes, int[] position) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,124 @@
+package org.zewang.kafkademo.util;
+
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdCompressCtx;
+import com.github.luben.zstd.ZstdDecompressCtx;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+import org.zewang.kafkademo.config.serialize.ZstdDictionaries;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 访问日志原文的压缩工具，使用在我们自己的日志上训练的 zstd 字典；
+ *               单行日志只有一百多字节，没有字典时几乎压不动，有字典后公共片段都能直接引用。
+ *               zstd 帧头记录了字典 ID，更换字典后旧数据仍按 ID 找回对应字典解压
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/18 18:00
+ */
+
+public final class LogMessageCompressor {
+
+    private static final int ZSTD_MAGIC = 0xFD2FB528;
+
+    // 字典 ID -> 解压字典；压缩只使用当前字典
+    private static final Map<Integer, ZstdDictDecompress> DICTIONARIES = new ConcurrentHashMap<>();
+    private static volatile ZstdDictCompress currentDictionary;
+    // 本进程没有加载过的字典（例如其他实例刚训练的）按 ID 从外部加载，返回 null 表示不存在
+    private static volatile IntFunction<byte[]> dictionaryLoader = id -> null;
+
+    private static final ThreadLocal<ZstdCompressCtx> COMPRESS_CTX = ThreadLocal.withInitial(
+        () -> new ZstdCompressCtx().setChecksum(false).setContentSize(true).setDictID(true));
+    private static final ThreadLocal<ZstdDecompressCtx> DECOMPRESS_CTX = ThreadLocal.withInitial(ZstdDecompressCtx::new);
+
+    private LogMessageCompressor() {
+    }
+
+    /**
+     * 登记一份字典，之后可以解压用它压缩的数据
+     * @return 字典 ID
+     */
+    public static int register(byte[] dictionary) {
+        int id = ZstdDictionaries.dictionaryId(dictionary);
+        DICTIONARIES.computeIfAbsent(id, key -> new ZstdDictDecompress(dictionary));
+        return id;
+    }
+
+    /**
+     * 登记字典并用它压缩之后的日志
+     * @param level zstd 压缩级别
+     */
+    public static void activate(byte[] dictionary, int level) {
+        register(dictionary);
+        currentDictionary = new ZstdDictCompress(dictionary, level);
+    }
+
+    public static boolean hasActiveDictionary() {
+        return currentDictionary != null;
+    }
+
+    public static void setDictionaryLoader(IntFunction<byte[]> loader) {
+        dictionaryLoader = loader;
+    }
+
+    /**
+     * 压缩日志原文
+     * @return 压缩结果；还没有可用的字典，或压缩后不比原文小时返回 null，调用方应直接保存原文
+     */
+    public static byte[] compress(String message) {
+        ZstdDictCompress dictionary = currentDictionary;
+        if (dictionary == null) {
+            return null;
+        }
+        byte[] input = message.getBytes(StandardCharsets.UTF_8);
+        byte[] buffer = new byte[(int) Zstd.compressBound(input.length)];
+        int length = COMPRESS_CTX.get().loadDict(dictionary)
+            .compressByteArray(buffer, 0, buffer.length, input, 0, input.length);
+        if (length >= input.length) {
+            return null;
+        }
+        byte[] output = new byte[length];
+        System.arraycopy(buffer, 0, output, 0, length);
+        return output;
+    }
+
+    /**
+     * 解压 compress 的结果
+     */
+    public static String decompress(byte[] compressed) {
+        if (!isZstdFrame(compressed)) {
+            throw new IllegalStateException("日志压缩数据损坏: 不是 zstd 帧");
+        }
+        int id = (int) Zstd.getDictIdFromFrame(compressed);
+        ZstdDictDecompress dictionary = DICTIONARIES.get(id);
+        if (dictionary == null) {
+            byte[] loaded = dictionaryLoader.apply(id);
+            if (loaded == null) {
+                throw new IllegalStateException("未知的日志压缩字典: " + Integer.toUnsignedString(id));
+            }
+            register(loaded);
+            dictionary = DICTIONARIES.get(id);
+        }
+        try {
+            long size = Zstd.getFrameContentSize(compressed);
+            if (size < 0 || size > Integer.MAX_VALUE) {
+                throw new IllegalStateException("日志压缩数据损坏: 无法读取原文长度");
+            }
+            byte[] raw = DECOMPRESS_CTX.get().loadDict(dictionary).decompress(compressed, (int) size);
+            return new String(raw, StandardCharsets.UTF_8);
+        } catch (ZstdException e) {
+            throw new IllegalStateException("日志压缩数据损坏: " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean isZstdFrame(byte[] data) {
+        return data.length >= 4 && ((data[0] & 0xFF) | (data[1] & 0xFF) << 8 | (data[2] & 0xFF) << 16
+            | (data[3] & 0xFF) << 24) == ZSTD_MAGIC;
+    }
+}
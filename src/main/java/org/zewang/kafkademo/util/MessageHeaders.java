@@ -0,0 +1,55 @@
+package org.zewang.kafkademo.util;
+
+
+import java.nio.charset.StandardCharsets;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 测试消息的 Kafka 头：生产者写入 messageId，消费者不解析消息体就能去重
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/19 04:00
+ */
+
+public final class MessageHeaders {
+
+    public static final String MESSAGE_ID = "messageId";
+    // 只在消费端使用：头部预过滤已经为这条记录抢占了去重标记，监听器不再重复抢占
+    public static final String DEDUP_CLAIMED = "dedupClaimed";
+
+    private static final byte[] TRUE = {1};
+
+    private MessageHeaders() {
+    }
+
+    /**
+     * 写入 messageId 头
+     */
+    public static void stamp(Headers headers, String messageId) {
+        headers.add(MESSAGE_ID, messageId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 读取 messageId 头，没有时返回 null
+     */
+    public static String messageId(Headers headers) {
+        Header header = headers.lastHeader(MESSAGE_ID);
+        return header != null && header.value() != null
+            ? new String(header.value(), StandardCharsets.UTF_8) : null;
+    }
+
+    public static void markDedupClaimed(Headers headers) {
+        headers.add(DEDUP_CLAIMED, TRUE);
+    }
+
+    // 生产者写入的同名头不可信，头部预过滤抢占标记之前先去掉
+    public static void clearDedupClaimed(Headers headers) {
+        headers.remove(DEDUP_CLAIMED);
+    }
+
+    public static boolean isDedupClaimed(Headers headers) {
+        return headers.lastHeader(DEDUP_CLAIMED) != null;
+    }
+}
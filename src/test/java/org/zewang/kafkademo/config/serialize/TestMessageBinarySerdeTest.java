@@ -0,0 +1,100 @@
+package org.zewang.kafkademo.config.serialize;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Map;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+import org.zewang.kafkademo.entity.TestMessage;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: TestMessage 紧凑二进制格式的序列化往返测试
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/19 11:20
+ */
+class TestMessageBinarySerdeTest {
+
+    private static final String TOPIC = "test-messages";
+
+    private final TestMessageBinarySerializer serializer = new TestMessageBinarySerializer();
+    private final TestMessageBinaryDeserializer deserializer = new TestMessageBinaryDeserializer();
+
+    @Test
+    void roundTripsAllFields() {
+        assertRoundTrip(new TestMessage(42L, "msg-1", "hello", "sender-1",
+            LocalDateTime.of(2026, 10, 19, 11, 20, 30, 123_456_789), "PROCESSED", 3));
+    }
+
+    @Test
+    void roundTripsNullFields() {
+        // 实体默认值 PENDING / 0 也要能还原成 null
+        assertRoundTrip(new TestMessage(null, null, null, null, null, null, null));
+        assertRoundTrip(new TestMessage(null, "msg-2", null, "sender", null, "PENDING", null));
+    }
+
+    @Test
+    void roundTripsBoundaryNumbersAndTimes() {
+        assertRoundTrip(new TestMessage(Long.MIN_VALUE, "a", "", "", LocalDateTime.of(1900, 1, 1, 0, 0),
+            "", Integer.MIN_VALUE));
+        assertRoundTrip(new TestMessage(Long.MAX_VALUE, "b", "c", "d",
+            LocalDateTime.of(9999, 12, 31, 23, 59, 59, 999_999_999), "e", Integer.MAX_VALUE));
+        assertRoundTrip(new TestMessage(-1L, "c", "c", "c", LocalDateTime.of(1969, 12, 31, 23, 59, 59, 1), "c", -1));
+    }
+
+    @Test
+    void roundTripsMultiByteStrings() {
+        String content = "中文内容 🚀 ".repeat(100);
+        assertRoundTrip(new TestMessage(7L, "消息-é", content, "发送者",
+            LocalDateTime.of(2026, 1, 1, 0, 0), "已处理", 1));
+    }
+
+    @Test
+    void nullPayloadMapsToNull() {
+        assertNull(serializer.serialize(TOPIC, null));
+        assertNull(deserializer.deserialize(TOPIC, null));
+    }
+
+    @Test
+    void rejectsUnknownVersion() {
+        byte[] bytes = serializer.serialize(TOPIC, sample());
+        bytes[0] = (byte) (TestMessageBinarySerializer.VERSION + 1);
+
+        assertThrows(SerializationException.class, () -> deserializer.deserialize(TOPIC, bytes));
+        assertThrows(SerializationException.class, () -> deserializer.deserialize(TOPIC, new byte[0]));
+    }
+
+    @Test
+    void rejectsTruncatedPayload() {
+        byte[] bytes = serializer.serialize(TOPIC, sample());
+
+        for (int length = 2; length < bytes.length; length++) {
+            byte[] truncated = Arrays.copyOf(bytes, length);
+            assertThrows(SerializationException.class, () -> deserializer.deserialize(TOPIC, truncated),
+                "length=" + length);
+        }
+    }
+
+    @Test
+    void rejectsOtherSerializedClass() {
+        Map<String, Object> configs = Map.of("serializedClass", String.class.getName());
+
+        assertThrows(SerializationException.class, () -> serializer.configure(configs, false));
+        assertThrows(SerializationException.class, () -> deserializer.configure(configs, false));
+    }
+
+    private void assertRoundTrip(TestMessage message) {
+        byte[] bytes = serializer.serialize(TOPIC, message);
+        assertEquals(message, deserializer.deserialize(TOPIC, bytes));
+    }
+
+    private static TestMessage sample() {
+        return new TestMessage(1L, "msg-1", "content", "sender", LocalDateTime.of(2026, 10, 19, 0, 0), "PROCESSED", 1);
+    }
+}
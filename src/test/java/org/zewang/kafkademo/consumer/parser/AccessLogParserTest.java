@@ -0,0 +1,169 @@
+package org.zewang.kafkademo.consumer.parser;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.zewang.kafkademo.entity.LogEntry;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: 单遍扫描解析与 LOG_PATTERN 正则解析的结果一致性测试
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/19 10:20
+ */
+class AccessLogParserTest {
+
+    private final AccessLogParser parser = new AccessLogParser();
+    private final AccessLogParser regexParser = new AccessLogParser();
+
+    @Test
+    void parsesStandardLine() {
+        String line = "192.168.1.10 - - [21/Jun/2024:10:00:00 +0800] \"GET /api/status HTTP/1.1\" 200 125 5ms \"Mozilla/5.0\"";
+        // 正则要求状态码后紧跟响应时间，这一行带字节数，两条路径都应拒绝
+        assertBothReject(line);
+
+        String valid = "192.168.1.10 - - [21/Jun/2024:10:00:00 +0800] \"GET /api/status HTTP/1.1\" 200 5ms \"Mozilla/5.0\"";
+        LogEntry entry = assertSameAsRegex(valid);
+        assertEquals("192.168.1.10", entry.getIdAddress());
+        assertEquals(LocalDateTime.of(2024, 6, 21, 10, 0, 0), entry.getTimestamp());
+        assertEquals("GET", entry.getMethod());
+        assertEquals("/api/status", entry.getPath());
+        assertEquals(200, entry.getStatusCode());
+        assertEquals(5L, entry.getResponseTimeMs());
+        assertEquals("Mozilla/5.0", entry.getUserAgent());
+        assertFalse(entry.isPartiallyParsed());
+    }
+
+    @Test
+    void scannerHandlesWellFormedLines() {
+        // 只有扫描路径经过规范化缓存，同一路径的两次解析返回同一个实例；正则路径每次都会创建新的子串
+        String line = "10.0.0.1 - - [21/Jun/2024:10:00:00 +0800] \"POST /api/orders HTTP/1.0\" 201 12ms \"curl/8.0\"";
+        LogEntry first = parser.parse(line);
+        LogEntry second = parser.parse(line);
+        assertSame(first.getPath(), second.getPath());
+        assertSame(first.getUserAgent(), second.getUserAgent());
+    }
+
+    @Test
+    void quotedFieldsWithSpaces() {
+        // 路径和 User-Agent 中的空格：路径截止到第一个协议版本，User-Agent 截止到下一个双引号
+        assertSameAsRegex("10.0.0.1 - - [21/Jun/2024:10:00:00 +0800] "
+            + "\"GET /search?q=a b c HTTP/1.1\" 200 3ms \"Mozilla/5.0 (Windows NT 10.0; Win64; x64)\"");
+        assertSameAsRegex("10.0.0.1 - - [21/Jun/2024:10:00:00 +0800] "
+            + "\"GET /a HTTP/1.1 /b HTTP/1.0\" 200 3ms \"UA\"");
+        assertSameAsRegex("10.0.0.1 - - [21/Jun/2024:10:00:00 +0800] "
+            + "\"DELETE /items/1 HTTP/1.1\" 204 0ms \"agent \"quoted\" tail\"");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "10.0.0.1 - - [21/Jun/2024:10:00:00 +0800] \"GET /x HTTP/1.1\" 200 -ms \"UA\"",
+        "10.0.0.1 - - [21/Jun/2024:10:00:00 +0800] \"GET /x HTTP/1.1\" 200 - \"UA\"",
+        "10.0.0.1 - - [21/Jun/2024:10:00:00 +0800] \"GET /x HTTP/1.1\" - 5ms \"UA\"",
+        "10.0.0.1 - - [21/Jun/2024:10:00:00 +0800] \"GET /x HTTP/1.1\" 200 - 5ms \"UA\""
+    })
+    void dashSizesAreRejectedByBothPaths(String line) {
+        assertBothReject(line);
+    }
+
+    @Test
+    void minuteRollover() {
+        List<String> timestamps = List.of(
+            "21/Jun/2024:10:00:58 +0800",
+            "21/Jun/2024:10:00:59 +0800",
+            "21/Jun/2024:10:01:00 +0800",
+            "21/Jun/2024:10:01:01 +0800",
+            // 回到上一分钟，缓存中已经是 10:01
+            "21/Jun/2024:10:00:30 +0800",
+            // 只有时区不同，不能命中缓存
+            "21/Jun/2024:10:00:31 +0000",
+            "21/Jun/2024:23:59:59 +0800",
+            "22/Jun/2024:00:00:00 +0800",
+            "31/Dec/2024:23:59:59 +0800",
+            "01/Jan/2025:00:00:00 +0800");
+        for (String timestamp : timestamps) {
+            LogEntry entry = assertSameAsRegex("10.0.0.1 - - [" + timestamp + "] \"GET /x HTTP/1.1\" 200 1ms \"UA\"");
+            assertFalse(entry.isPartiallyParsed(), timestamp);
+        }
+    }
+
+    @Test
+    void invalidSecondsFallBackToNowForBothPaths() {
+        // 秒字段超出范围时不能从分钟缓存拼出时间，两条路径都回退到当前时间并标记为部分解析
+        parser.parse("10.0.0.1 - - [21/Jun/2024:10:00:00 +0800] \"GET /x HTTP/1.1\" 200 1ms \"UA\"");
+        String line = "10.0.0.1 - - [21/Jun/2024:10:00:61 +0800] \"GET /x HTTP/1.1\" 200 1ms \"UA\"";
+        LogEntry scanned = parser.parse(line);
+        LogEntry regex = regexParser.parseWithRegex(line);
+        assertTrue(scanned.isPartiallyParsed());
+        assertTrue(regex.isPartiallyParsed());
+        assertSameFields(regex, scanned);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "",
+        "not a log line",
+        "10.0.0 - - [21/Jun/2024:10:00:00 +0800] \"GET /x HTTP/1.1\" 200 1ms \"UA\"",
+        "10.0.0.1 - - [21/Jun/2024:10:00:00 +0800] \"PATCH /x HTTP/1.1\" 200 1ms \"UA\"",
+        "10.0.0.1 - - [21/Jun/2024:10:00:00 +0800] \"GET /x HTTP/2.0\" 200 1ms \"UA\"",
+        "10.0.0.1 - - [21/Jun/2024:10:00:00 +0800] \"GET /x HTTP/1.1\" 2000 1ms \"UA\"",
+        "10.0.0.1 - - [21/Jun/2024:10:00:00 +0800] \"GET /x HTTP/1.1\" 200 1ms \"UA",
+        "10.0.0.1 - - [21/Jun/2024:10:00:00 +0800] \"GET /x HTTP/1.1\" 200 1ms \"\"",
+        "10.0.0.1 - - [21/Jun/2024:10:00:00 +0800] \"GET /x\ny HTTP/1.1\" 200 1ms \"UA\"",
+        "10.0.0.1 - - [21/Jun/2024:10:00:00 +0800] \"GET /x HTTP/1.1\" 200 99999999999999999999ms \"UA\""
+    })
+    void malformedLinesAreRejectedByBothPaths(String line) {
+        assertBothReject(line);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        // 行首有多余内容、IP 段超过 3 位：扫描器不处理，由正则从中间找到匹配
+        "prefix 10.0.0.1 - - [21/Jun/2024:10:00:00 +0800] \"GET /x HTTP/1.1\" 200 1ms \"UA\"",
+        "1234.0.0.1 - - [21/Jun/2024:10:00:00 +0800] \"GET /x HTTP/1.1\" 200 1ms \"UA\"",
+        // 第一个 "] " 之后不是请求，正则回溯到后面的 "] "
+        "10.0.0.1 - - [21/Jun/2024:10:00:00 +0800] junk] \"GET /x HTTP/1.1\" 200 1ms \"UA\"",
+        "10.0.0.1 - - [21/Jun/2024:10:00:00 +0800] \"GET /x HTTP/1.1\" 200 1ms \"UA\" trailing"
+    })
+    void linesNeedingBacktrackingMatchRegex(String line) {
+        assertSameAsRegex(line);
+    }
+
+    private LogEntry assertSameAsRegex(String line) {
+        LogEntry expected = regexParser.parseWithRegex(line);
+        LogEntry actual = parser.parse(line);
+        assertSameFields(expected, actual);
+        // 部分解析的时间戳取自各自的当前时间，不做比较
+        if (!expected.isPartiallyParsed()) {
+            assertEquals(expected.getTimestamp(), actual.getTimestamp(), line);
+        }
+        return actual;
+    }
+
+    private static void assertSameFields(LogEntry expected, LogEntry actual) {
+        String line = expected.getOriginalMessage();
+        assertEquals(expected.getOriginalMessage(), actual.getOriginalMessage(), line);
+        assertEquals(expected.getIdAddress(), actual.getIdAddress(), line);
+        assertEquals(expected.getMethod(), actual.getMethod(), line);
+        assertEquals(expected.getPath(), actual.getPath(), line);
+        assertEquals(expected.getStatusCode(), actual.getStatusCode(), line);
+        assertEquals(expected.getResponseTimeMs(), actual.getResponseTimeMs(), line);
+        assertEquals(expected.getUserAgent(), actual.getUserAgent(), line);
+        assertEquals(expected.isPartiallyParsed(), actual.isPartiallyParsed(), line);
+    }
+
+    private void assertBothReject(String line) {
+        assertThrows(IllegalArgumentException.class, () -> regexParser.parseWithRegex(line), line);
+        assertThrows(IllegalArgumentException.class, () -> parser.parse(line), line);
+    }
+}
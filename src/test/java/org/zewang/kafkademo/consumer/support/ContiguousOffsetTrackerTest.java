@@ -0,0 +1,126 @@
+package org.zewang.kafkademo.consumer.support;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.zewang.kafkademo.consumer.support.ContiguousOffsetTracker.Segment;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: ContiguousOffsetTracker 的连续提交语义测试
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/19 10:40
+ */
+class ContiguousOffsetTrackerTest {
+
+    private static final TopicPartition P0 = new TopicPartition("web-logs", 0);
+    private static final TopicPartition P1 = new TopicPartition("web-logs", 1);
+
+    private final ContiguousOffsetTracker tracker = new ContiguousOffsetTracker();
+
+    @Test
+    void commitsAfterLastCompletedOffset() {
+        tracker.begin(P0, 0, 9).complete();
+
+        assertEquals(Map.of(P0, new OffsetAndMetadata(10)), tracker.committableOffsets(List.of(P0)));
+    }
+
+    @Test
+    void laterSegmentWaitsForEarlierOne() {
+        Segment first = tracker.begin(P0, 0, 9);
+        Segment second = tracker.begin(P0, 10, 19);
+
+        second.complete();
+        assertTrue(tracker.committableOffsets(List.of(P0)).isEmpty());
+        assertEquals(2, tracker.pendingSegments());
+
+        first.complete();
+        assertEquals(Map.of(P0, new OffsetAndMetadata(20)), tracker.committableOffsets(List.of(P0)));
+        assertEquals(0, tracker.pendingSegments());
+    }
+
+    @Test
+    void unfinishedSegmentHoldsBackEverythingAfterIt() {
+        tracker.begin(P0, 0, 9).complete();
+        tracker.begin(P0, 10, 19); // 处理失败，永远不会 complete
+        tracker.begin(P0, 20, 29).complete();
+        tracker.begin(P0, 30, 39).complete();
+
+        assertEquals(Map.of(P0, new OffsetAndMetadata(10)), tracker.committableOffsets(List.of(P0)));
+    }
+
+    @Test
+    void committedOffsetIsNotReturnedAgain() {
+        tracker.begin(P0, 0, 9).complete();
+        Map<TopicPartition, OffsetAndMetadata> offsets = tracker.committableOffsets(List.of(P0));
+        tracker.markCommitted(offsets);
+
+        assertTrue(tracker.committableOffsets(List.of(P0)).isEmpty());
+
+        tracker.begin(P0, 10, 14).complete();
+        assertEquals(Map.of(P0, new OffsetAndMetadata(15)), tracker.committableOffsets(List.of(P0)));
+    }
+
+    @Test
+    void partitionsAreTrackedIndependently() {
+        tracker.begin(P0, 0, 9);
+        tracker.begin(P1, 100, 109).complete();
+
+        assertEquals(Map.of(P1, new OffsetAndMetadata(110)), tracker.committableOffsets(List.of(P0, P1)));
+        // 只返回调用方给出的分区
+        assertTrue(tracker.committableOffsets(List.of(P0)).isEmpty());
+    }
+
+    @Test
+    void removedPartitionIgnoresLateCompletion() {
+        Segment segment = tracker.begin(P0, 0, 9);
+        tracker.remove(List.of(P0));
+        segment.complete();
+
+        assertTrue(tracker.committableOffsets(List.of(P0)).isEmpty());
+        assertEquals(0, tracker.pendingSegments());
+    }
+
+    @Test
+    void awaitCompletionTimesOutWhileSegmentIsPending() throws InterruptedException {
+        tracker.begin(P0, 0, 9);
+
+        assertFalse(tracker.awaitCompletion(List.of(P0), 50));
+        // 没有登记过的分区视为已完成
+        assertTrue(tracker.awaitCompletion(List.of(P1), 50));
+    }
+
+    @Test
+    void awaitCompletionReturnsOnceSegmentsComplete() throws Exception {
+        Segment first = tracker.begin(P0, 0, 9);
+        Segment second = tracker.begin(P0, 10, 19);
+
+        CompletableFuture<Void> completer = CompletableFuture.runAsync(() -> {
+            sleepQuietly(50);
+            second.complete();
+            first.complete();
+        });
+
+        assertTrue(tracker.awaitCompletion(List.of(P0), 5_000));
+        completer.get(5, TimeUnit.SECONDS);
+        assertEquals(Map.of(P0, new OffsetAndMetadata(20)), tracker.committableOffsets(List.of(P0)));
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
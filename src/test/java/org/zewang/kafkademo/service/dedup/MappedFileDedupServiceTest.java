@@ -0,0 +1,156 @@
+package org.zewang.kafkademo.service.dedup;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author "Zewang"
+ * @version 1.0
+ * @description: MappedFileDedupService 的抢占、重建和重启恢复测试
+ * @email "Zewang0217@outlook.com"
+ * @date 2026/10/19 11:00
+ */
+class MappedFileDedupServiceTest {
+
+    // max-entries = 10 按 0.75 负载向上取 2 的幂，得到 16 个槽位，负载上限 12
+    private static final long MAX_ENTRIES = 10;
+    private static final int CAPACITY = 16;
+    private static final long TTL_HOURS = 24;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void claimsOnceUntilUnmarked() throws Exception {
+        try (MappedFileDedupService service = open(TTL_HOURS)) {
+            assertTrue(service.tryMarkProcessed("a"));
+            assertFalse(service.tryMarkProcessed("a"));
+
+            service.unmarkMessage("a");
+            assertTrue(service.tryMarkProcessed("a"));
+
+            assertEquals(List.of(false, true, false), service.tryMarkProcessedBatch(List.of("a", "b", "b")));
+        }
+    }
+
+    @Test
+    void expiredEntriesCanBeClaimedAgain() throws Exception {
+        // ttl 为 0 时记录写入即过期，槽位可以一直复用，不会写满
+        try (MappedFileDedupService service = open(0)) {
+            for (int i = 0; i < CAPACITY * 10; i++) {
+                assertTrue(service.tryMarkProcessed("id-" + i));
+            }
+            assertTrue(service.tryMarkProcessed("id-0"));
+        }
+    }
+
+    @Test
+    void rebuildKeepsLiveEntriesWhileTombstonesChurn() throws Exception {
+        try (MappedFileDedupService service = open(TTL_HOURS)) {
+            List<String> confirmed = List.of("keep-1", "keep-2", "keep-3", "keep-4", "keep-5");
+            for (String id : confirmed) {
+                assertTrue(service.tryMarkProcessed(id));
+                service.confirmProcessed(id, null);
+            }
+
+            // 反复抢占后释放，墓碑累积到负载上限时原地重建，有效记录保留
+            for (int i = 0; i < CAPACITY * 20; i++) {
+                String id = "churn-" + i;
+                assertTrue(service.tryMarkProcessed(id));
+                service.unmarkMessage(id);
+            }
+
+            for (String id : confirmed) {
+                assertFalse(service.tryMarkProcessed(id), id);
+            }
+        }
+    }
+
+    @Test
+    void failsOnlyWhenEverySlotHoldsALiveEntry() throws Exception {
+        try (MappedFileDedupService service = open(TTL_HOURS)) {
+            // 超过负载上限后仍继续写入空槽，直到所有槽位都被有效记录占满
+            for (int i = 0; i < CAPACITY; i++) {
+                assertTrue(service.tryMarkProcessed("id-" + i));
+            }
+            for (int i = 0; i < CAPACITY; i++) {
+                assertFalse(service.tryMarkProcessed("id-" + i));
+            }
+            assertThrows(IllegalStateException.class, () -> service.tryMarkProcessed("one-too-many"));
+        }
+    }
+
+    @Test
+    void recoverKeepsConfirmedAndReleasesClaimed() throws Exception {
+        try (MappedFileDedupService service = open(TTL_HOURS)) {
+            assertTrue(service.tryMarkProcessed("confirmed"));
+            service.confirmProcessed("confirmed", null);
+            // 上次运行中抢占后未处理完成
+            assertTrue(service.tryMarkProcessed("in-flight"));
+        }
+
+        try (MappedFileDedupService service = open(TTL_HOURS)) {
+            assertFalse(service.tryMarkProcessed("confirmed"));
+            assertTrue(service.tryMarkProcessed("in-flight"));
+        }
+    }
+
+    @Test
+    void recoverRebuildsWhenFileIsOverLoadLimit() throws Exception {
+        try (MappedFileDedupService service = open(TTL_HOURS)) {
+            for (int i = 0; i < 13; i++) {
+                assertTrue(service.tryMarkProcessed("id-" + i));
+                if (i % 2 == 0) {
+                    service.confirmProcessed("id-" + i, null);
+                }
+            }
+        }
+
+        // 13 个已用槽位超过负载上限，启动时释放 6 条未确认记录后重建，只剩 7 条已确认记录
+        try (MappedFileDedupService service = open(TTL_HOURS)) {
+            for (int i = 0; i < 13; i++) {
+                assertEquals(i % 2 != 0, service.tryMarkProcessed("id-" + i), "id-" + i);
+            }
+            for (int i = 13; i < CAPACITY; i++) {
+                assertTrue(service.tryMarkProcessed("id-" + i));
+            }
+            assertThrows(IllegalStateException.class, () -> service.tryMarkProcessed("one-too-many"));
+        }
+    }
+
+    @Test
+    void reopenKeepsCapacityFromFile() throws Exception {
+        long size;
+        try (MappedFileDedupService service = open(TTL_HOURS)) {
+            size = service.sizeInBytes();
+        }
+        try (MappedFileDedupService service = new MappedFileDedupService(file(), MAX_ENTRIES * 100, TTL_HOURS)) {
+            assertEquals(size, service.sizeInBytes());
+        }
+        assertEquals(size, Files.size(file()));
+    }
+
+    @Test
+    void rejectsFileWithoutMagic() throws Exception {
+        Files.write(file(), new byte[128]);
+
+        assertThrows(IllegalStateException.class, () -> open(TTL_HOURS));
+    }
+
+    private MappedFileDedupService open(long ttlHours) {
+        return new MappedFileDedupService(file(), MAX_ENTRIES, ttlHours);
+    }
+
+    private Path file() {
+        return dir.resolve("dedup.idx");
+    }
+}